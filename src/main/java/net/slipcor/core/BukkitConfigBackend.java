@@ -0,0 +1,95 @@
+package net.slipcor.core;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * YML handling by Bukkit, comments of ConfigEntries are added to the serialized content in one pass
+ */
+final class BukkitConfigBackend implements ConfigBackend {
+
+    @Override
+    public void load(final String content, final YamlConfiguration target,
+                     final Map<String, List<String>> comments) throws InvalidConfigurationException {
+        target.loadFromString(content);
+    }
+
+    @Override
+    public String save(final YamlConfiguration source, final String header, final Map<String, List<String>> comments,
+                       final Function<String, String> entryComments) {
+        final String[] lines = source.saveToString().split("\n");
+        final StringBuilder builder = new StringBuilder();
+
+        if (header != null) {
+            builder.append("# ").append(header).append('\n');
+        }
+
+        final String[] keys = new String[lines.length]; // the keys of the current path
+        final int[] indents = new int[lines.length]; // the indentation of these keys
+        int depth = 0;
+
+        for (final String line : lines) {
+            final String trimmed = line.trim();
+            if (trimmed.startsWith("#") || trimmed.isEmpty()) {
+                continue;
+            }
+
+            final String key = getKey(trimmed);
+            if (key != null) {
+                final int indent = line.indexOf(trimmed.charAt(0));
+                while (depth > 0 && indents[depth - 1] >= indent) {
+                    depth--;
+                }
+                keys[depth] = key;
+                indents[depth] = indent;
+                depth++;
+
+                final StringBuilder path = new StringBuilder(keys[0]);
+                for (int pos = 1; pos < depth; pos++) {
+                    path.append('.').append(keys[pos]);
+                }
+
+                final String comment = entryComments.apply(path.toString());
+
+                if (comment != null && !comment.isEmpty()) {
+                    builder.append('\n');
+                    for (int pos = 0; pos < indent; pos++) {
+                        builder.append(' ');
+                    }
+                    builder.append("# ").append(comment).append('\n');
+                }
+            }
+            builder.append(line).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Read the mapping key of a trimmed YML line
+     *
+     * @param trimmed the line without indentation
+     * @return the unquoted key, null if the line is no mapping key
+     */
+    private static String getKey(final String trimmed) {
+        if (trimmed.startsWith("-")) {
+            return null;
+        }
+        final char first = trimmed.charAt(0);
+        if (first == '\'' || first == '"') {
+            final int end = trimmed.indexOf(first, 1);
+            if (end < 0 || !trimmed.startsWith(":", end + 1)) {
+                return null;
+            }
+            return trimmed.substring(1, end);
+        }
+        final int colon = trimmed.indexOf(':');
+        if (colon < 1 || (colon + 1 < trimmed.length() && trimmed.charAt(colon + 1) != ' ')) {
+            return null;
+        }
+        return trimmed.substring(0, colon);
+    }
+}
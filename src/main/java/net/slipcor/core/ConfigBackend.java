@@ -0,0 +1,45 @@
+package net.slipcor.core;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The way YML content is read into and written from a YamlConfiguration
+ */
+public interface ConfigBackend {
+    /**
+     * Bukkit's own YML handling, comments are added in a second pass when saving
+     */
+    ConfigBackend BUKKIT = new BukkitConfigBackend();
+
+    /**
+     * A streaming reader and writer that keeps comments, falling back to BUKKIT for YML it does not support
+     */
+    ConfigBackend STREAMING = new StreamingConfigBackend();
+
+    /**
+     * Parse YML content into a configuration
+     *
+     * @param content  the YML content
+     * @param target   the empty configuration to fill
+     * @param comments the map to put the comment lines and layout of each node into, if supported
+     * @throws InvalidConfigurationException if the content is no valid YML
+     */
+    void load(String content, YamlConfiguration target, Map<String, List<String>> comments) throws InvalidConfigurationException;
+
+    /**
+     * Serialize a configuration to YML
+     *
+     * @param source        the configuration to serialize
+     * @param header        the header line, can be null
+     * @param comments      the comment lines and layout of each node, as collected by load
+     * @param entryComments the ConfigEntry comment of a node, can return null
+     * @return the YML content
+     */
+    String save(YamlConfiguration source, String header, Map<String, List<String>> comments,
+                Function<String, String> entryComments);
+}
@@ -0,0 +1,336 @@
+package net.slipcor.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Binary sidecar file holding the resolved values of a config, so startup can skip parsing the YML.
+ *
+ * The cache is only valid for the exact config file it was written for, identified by size,
+ * modification time and content hash, and for the ConfigEntry set and override section it was
+ * resolved with, identified by a fingerprint.
+ */
+final class ConfigCache {
+    private static final int MAGIC = 0x53434F52;
+    private static final int VERSION = 3;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_BOOLEAN = 5;
+    private static final byte TAG_LIST = 6;
+    private static final byte TAG_MAP = 7;
+
+    private ConfigCache() {
+    }
+
+    /**
+     * Read a snapshot from a cache file
+     *
+     * @param cacheFile  the cache file
+     * @param configFile the config file the cache has to match
+     * @param hash       the hash of the current config file content
+     * @param nodes      all ConfigEntry instances
+     * @param overrides  the section holding the overrides of each scope, null if there is none
+     * @param problems   filled with the problems logged when the values were resolved
+     * @return the cached snapshot, null if there is no cache or it does not match the config file or the nodes
+     * @throws IOException if the cache could not be read
+     */
+    static ConfigSnapshot read(final File cacheFile, final File configFile, final byte[] hash,
+                               final ConfigEntry[] nodes, final String overrides,
+                               final List<Map.Entry<Level, String>> problems) throws IOException {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(cacheFile.toPath())))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION
+                    || input.readLong() != configFile.length() || input.readLong() != configFile.lastModified()) {
+                return null;
+            }
+            final byte[] cachedHash = new byte[input.readInt()];
+            input.readFully(cachedHash);
+            if (!Arrays.equals(cachedHash, hash)) {
+                return null;
+            }
+            final byte[] cachedFingerprint = new byte[input.readInt()];
+            input.readFully(cachedFingerprint);
+            if (!Arrays.equals(cachedFingerprint, fingerprint(nodes, overrides))) {
+                return null; // the plugin changed its entries, the values might belong in other maps
+            }
+
+            final ConfigSnapshot.Values values = readValues(input);
+            final Map<String, ConfigSnapshot.Values> scoped = new HashMap<>();
+            for (int count = input.readInt(); count > 0; count--) {
+                scoped.put(readString(input), readValues(input));
+            }
+            final List<Map.Entry<Level, String>> cachedProblems = new ArrayList<>();
+            for (int count = input.readInt(); count > 0; count--) {
+                cachedProblems.add(new AbstractMap.SimpleImmutableEntry<>(Level.parse(readString(input)), readString(input)));
+            }
+
+            compile(values, nodes);
+            for (final ConfigSnapshot.Values scopeValues : scoped.values()) {
+                compile(scopeValues, nodes);
+            }
+            problems.addAll(cachedProblems);
+            return new ConfigSnapshot(nodes, values, scoped);
+        }
+    }
+
+    /**
+     * Write a snapshot to a cache file
+     *
+     * @param cacheFile  the cache file
+     * @param configFile the config file the snapshot was read from
+     * @param hash       the hash of the config file content
+     * @param snapshot   the snapshot to write
+     * @param overrides  the section holding the overrides of each scope, null if there is none
+     * @param problems   the problems logged when the values were resolved, to log them again when reading
+     * @throws IOException if the snapshot could not be written
+     */
+    static void write(final File cacheFile, final File configFile, final byte[] hash, final ConfigSnapshot snapshot,
+                      final String overrides, final List<Map.Entry<Level, String>> problems) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(configFile.length());
+            output.writeLong(configFile.lastModified());
+            output.writeInt(hash.length);
+            output.write(hash);
+            final byte[] fingerprint = fingerprint(snapshot.nodes, overrides);
+            output.writeInt(fingerprint.length);
+            output.write(fingerprint);
+
+            writeValues(output, snapshot.getValues());
+            output.writeInt(snapshot.overrides.size());
+            for (final Map.Entry<String, ConfigSnapshot.Values> entry : snapshot.overrides.entrySet()) {
+                writeString(output, entry.getKey());
+                writeValues(output, entry.getValue());
+            }
+            output.writeInt(problems.size());
+            for (final Map.Entry<Level, String> problem : problems) {
+                writeString(output, problem.getKey().getName());
+                writeString(output, problem.getValue());
+            }
+        }
+        CoreFiles.writeAtomically(cacheFile, bytes.toByteArray());
+    }
+
+    /**
+     * Hash everything that decides how values are resolved: the node, type, variables and enum type
+     * of every entry, and the override section
+     *
+     * @param nodes     all ConfigEntry instances
+     * @param overrides the section holding the overrides of each scope, null if there is none
+     * @return the fingerprint
+     */
+    static byte[] fingerprint(final ConfigEntry[] nodes, final String overrides) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(overrides).append('\n');
+        for (final ConfigEntry entry : nodes) {
+            builder.append(entry.getNode()).append('|').append(entry.getType());
+            if (entry.getType() == ConfigEntry.Type.EXPRESSION) {
+                builder.append('|').append(String.join(",", entry.getVariables()));
+            }
+            if (entry.getType() == ConfigEntry.Type.ENUM && entry.getEnumType() != null) {
+                builder.append('|').append(entry.getEnumType().getName());
+            }
+            builder.append('\n');
+        }
+        return CoreFiles.hash(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compile the cached sources of all EXPRESSION entries, index the lists of all SET entries
+     * and resolve the names of all ENUM and MATERIAL entries
+     */
+    private static void compile(final ConfigSnapshot.Values values, final ConfigEntry[] nodes) throws IOException {
+        for (final ConfigEntry entry : nodes) {
+            if (entry.getType() == ConfigEntry.Type.SET && values.lists.containsKey(entry.getNode())) {
+                values.sets.put(entry.getNode(), new ConfigSet(values.lists.get(entry.getNode())));
+            }
+            final Class<? extends Enum<?>> enumType = ConfigEnums.getType(entry);
+            if (enumType != null && (entry.getType() == ConfigEntry.Type.ENUM || entry.getType() == ConfigEntry.Type.MATERIAL)) {
+                final Object names = values.strings.containsKey(entry.getNode()) ? values.strings.get(entry.getNode())
+                        : values.lists.containsKey(entry.getNode()) ? values.lists.get(entry.getNode()) : values.maps.get(entry.getNode());
+                if (names != null) {
+                    values.enums.put(entry.getNode(), ConfigEnums.resolve(enumType, names, problem -> { })); // logged again from the cached problems
+                }
+            }
+            final String source = values.strings.get(entry.getNode());
+            if (entry.getType() != ConfigEntry.Type.EXPRESSION || source == null) {
+                continue;
+            }
+            try {
+                values.expressions.put(entry.getNode(), ConfigExpression.compile(source, entry.getVariables()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Cached expression of " + entry.getNode() + " is invalid", e);
+            }
+        }
+    }
+
+    private static ConfigSnapshot.Values readValues(final DataInputStream input) throws IOException {
+        final ConfigSnapshot.Values values = new ConfigSnapshot.Values();
+        for (int count = input.readInt(); count > 0; count--) {
+            values.booleans.put(readString(input), input.readBoolean());
+        }
+        for (int count = input.readInt(); count > 0; count--) {
+            values.ints.put(readString(input), input.readInt());
+        }
+        for (int count = input.readInt(); count > 0; count--) {
+            values.doubles.put(readString(input), input.readDouble());
+        }
+        for (int count = input.readInt(); count > 0; count--) {
+            values.strings.put(readString(input), readString(input));
+        }
+        for (int count = input.readInt(); count > 0; count--) {
+            final String node = readString(input);
+            final List<String> list = new ArrayList<>();
+            for (int size = input.readInt(); size > 0; size--) {
+                list.add(readString(input));
+            }
+            values.lists.put(node, Collections.unmodifiableList(list));
+        }
+        for (int count = input.readInt(); count > 0; count--) {
+            final String node = readString(input);
+            @SuppressWarnings("unchecked")
+            final Map<String, Object> map = (Map<String, Object>) readValue(input);
+            values.maps.put(node, map);
+        }
+        return values;
+    }
+
+    private static void writeValues(final DataOutputStream output, final ConfigSnapshot.Values values) throws IOException {
+        output.writeInt(values.booleans.size());
+        for (final Map.Entry<String, Boolean> entry : values.booleans.entrySet()) {
+            writeString(output, entry.getKey());
+            output.writeBoolean(entry.getValue());
+        }
+        output.writeInt(values.ints.size());
+        for (final Map.Entry<String, Integer> entry : values.ints.entrySet()) {
+            writeString(output, entry.getKey());
+            output.writeInt(entry.getValue());
+        }
+        output.writeInt(values.doubles.size());
+        for (final Map.Entry<String, Double> entry : values.doubles.entrySet()) {
+            writeString(output, entry.getKey());
+            output.writeDouble(entry.getValue());
+        }
+        output.writeInt(values.strings.size());
+        for (final Map.Entry<String, String> entry : values.strings.entrySet()) {
+            writeString(output, entry.getKey());
+            writeString(output, entry.getValue());
+        }
+        output.writeInt(values.lists.size());
+        for (final Map.Entry<String, List<String>> entry : values.lists.entrySet()) {
+            writeString(output, entry.getKey());
+            output.writeInt(entry.getValue().size());
+            for (final String item : entry.getValue()) {
+                writeString(output, item);
+            }
+        }
+        output.writeInt(values.maps.size());
+        for (final Map.Entry<String, Map<String, Object>> entry : values.maps.entrySet()) {
+            writeString(output, entry.getKey());
+            writeValue(output, entry.getValue());
+        }
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static Object readValue(final DataInputStream input) throws IOException {
+        final byte tag = input.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(input);
+            case TAG_INT:
+                return input.readInt();
+            case TAG_LONG:
+                return input.readLong();
+            case TAG_DOUBLE:
+                return input.readDouble();
+            case TAG_BOOLEAN:
+                return input.readBoolean();
+            case TAG_LIST:
+                final List<Object> list = new ArrayList<>();
+                for (int size = input.readInt(); size > 0; size--) {
+                    list.add(readValue(input));
+                }
+                return Collections.unmodifiableList(list);
+            case TAG_MAP:
+                final Map<String, Object> map = new LinkedHashMap<>();
+                for (int size = input.readInt(); size > 0; size--) {
+                    map.put(readString(input), readValue(input));
+                }
+                return Collections.unmodifiableMap(map);
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static void writeValue(final DataOutputStream output, final Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            output.writeByte(TAG_STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(TAG_INT);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(TAG_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            output.writeByte(TAG_DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(TAG_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof List) {
+            output.writeByte(TAG_LIST);
+            output.writeInt(((List<?>) value).size());
+            for (final Object item : (List<?>) value) {
+                writeValue(output, item);
+            }
+        } else if (value instanceof Map) {
+            output.writeByte(TAG_MAP);
+            output.writeInt(((Map<?, ?>) value).size());
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writeString(output, String.valueOf(entry.getKey()));
+                writeValue(output, entry.getValue());
+            }
+        } else {
+            throw new IOException("Can not cache values of " + value.getClass().getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package net.slipcor.core;
+
+/**
+ * A config value that changed during a reload
+ */
+public final class ConfigChange {
+    private final String node;
+    private final ConfigEntry entry;
+    private final Object oldValue;
+    private final Object newValue;
+
+    ConfigChange(final String node, final ConfigEntry entry, final Object oldValue, final Object newValue) {
+        this.node = node;
+        this.entry = entry;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    /**
+     * @return the full config node path
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @return the ConfigEntry of the node, can be null
+     */
+    public ConfigEntry getEntry() {
+        return entry;
+    }
+
+    /**
+     * @return the value before the reload, null if there was none
+     */
+    public Object getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * @return the value after the reload, null if there is none
+     */
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    @Override
+    public String toString() {
+        return node + ": " + oldValue + " -> " + newValue;
+    }
+}
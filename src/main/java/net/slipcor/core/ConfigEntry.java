@@ -21,6 +21,20 @@ public interface ConfigEntry {
      */
     Type getType();
 
+    /**
+     * @return the variable names an EXPRESSION can use, in the order they are passed when evaluating
+     */
+    default String[] getVariables() {
+        return new String[0];
+    }
+
+    /**
+     * @return the enum class the names of an ENUM entry belong to
+     */
+    default Class<? extends Enum<?>> getEnumType() {
+        return null;
+    }
+
     enum Type {
         COMMENT,
         STRING,
@@ -28,6 +42,10 @@ public interface ConfigEntry {
         INT,
         DOUBLE,
         LIST,
-        MAP;
+        MAP,
+        EXPRESSION,
+        SET,
+        ENUM,
+        MATERIAL;
     }
 }
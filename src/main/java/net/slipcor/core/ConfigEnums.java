@@ -0,0 +1,114 @@
+package net.slipcor.core;
+
+import org.bukkit.Material;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The constants an ENUM or MATERIAL entry resolved to when the config loaded.
+ *
+ * A single name resolves to one constant, a list of names to an EnumSet and a section keyed by
+ * names to an EnumMap, so lookups are bit checks and array accesses instead of name matching.
+ */
+final class ConfigEnums {
+    final Class<?> type;
+    final Enum<?> first; // the first resolved constant in config order, null if none
+    final EnumSet<?> set;
+    final Set<?> view; // unmodifiable view of the set
+    final Map<?, Object> map; // unmodifiable EnumMap view, empty unless the value is a section
+
+    private <E extends Enum<E>> ConfigEnums(final Class<E> type, final E first, final EnumSet<E> set,
+                                            final EnumMap<E, Object> map) {
+        this.type = type;
+        this.first = first;
+        this.set = set;
+        this.view = Collections.unmodifiableSet(set);
+        this.map = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Get the enum class of an entry
+     *
+     * @param entry the ENUM or MATERIAL entry
+     * @return the enum class, null if the entry does not declare one
+     */
+    @SuppressWarnings("unchecked")
+    static Class<? extends Enum<?>> getType(final ConfigEntry entry) {
+        if (entry.getType() == ConfigEntry.Type.MATERIAL) {
+            return Material.class;
+        }
+        return (Class<? extends Enum<?>>) entry.getEnumType();
+    }
+
+    /**
+     * Resolve a config value into constants
+     *
+     * @param type   the enum class
+     * @param value  a name, a list of names or a map keyed by names
+     * @param report informed about every name that could not be resolved
+     * @return the resolved constants
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static ConfigEnums resolve(final Class<? extends Enum<?>> type, final Object value, final Consumer<String> report) {
+        return create((Class) type, value, report);
+    }
+
+    private static <E extends Enum<E>> ConfigEnums create(final Class<E> type, final Object value, final Consumer<String> report) {
+        final EnumSet<E> set = EnumSet.noneOf(type);
+        final EnumMap<E, Object> map = new EnumMap<>(type);
+        E first = null; // the set iterates by ordinal, so remember the config order
+        if (value instanceof List) {
+            for (final Object item : (List<?>) value) {
+                final E constant = find(type, String.valueOf(item), report);
+                if (constant != null) {
+                    first = first == null ? constant : first;
+                    set.add(constant);
+                }
+            }
+        } else if (value instanceof Map) {
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                final E constant = find(type, String.valueOf(entry.getKey()), report);
+                if (constant != null) {
+                    first = first == null ? constant : first;
+                    set.add(constant);
+                    map.put(constant, entry.getValue());
+                }
+            }
+        } else if (value != null) {
+            first = find(type, String.valueOf(value), report);
+            if (first != null) {
+                set.add(first);
+            }
+        }
+        return new ConfigEnums(type, first, set, map);
+    }
+
+    /**
+     * Find the constant of a name, the way a user would write it in a config
+     */
+    private static <E extends Enum<E>> E find(final Class<E> type, final String name, final Consumer<String> report) {
+        if (type == Material.class) {
+            final Material material = Material.matchMaterial(name);
+            if (material != null && !material.isLegacy()) {
+                return type.cast(material);
+            }
+            report.accept(Material.matchMaterial(name, true) == null
+                    ? "unknown material '" + name + "'"
+                    : "legacy material name '" + name + "', please use the current name");
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name.trim().toUpperCase(Locale.ENGLISH).replace(' ', '_').replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            report.accept("unknown " + type.getSimpleName() + " '" + name + "'");
+            return null;
+        }
+    }
+}
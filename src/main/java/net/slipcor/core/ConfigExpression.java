@@ -0,0 +1,379 @@
+package net.slipcor.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A numeric formula from the config, like "base * 1.5 ^ streak", compiled once when the config loads.
+ *
+ * Supported are numbers, the variables declared by the ConfigEntry, + - * / % ^, parentheses and the
+ * functions abs, ceil, floor, round, sqrt, log, exp, min, max and clamp. Evaluating does not allocate.
+ */
+public final class ConfigExpression {
+    private static final ThreadLocal<double[]> SCRATCH = ThreadLocal.withInitial(() -> new double[4]);
+
+    private final String source;
+    private final String[] variables;
+    private final Term root;
+
+    /**
+     * A compiled part of the expression
+     */
+    private interface Term {
+        double evaluate(double[] values);
+    }
+
+    private static final class Constant implements Term {
+        private final double value;
+
+        private Constant(final double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double evaluate(final double[] values) {
+            return value;
+        }
+    }
+
+    private ConfigExpression(final String source, final String[] variables, final Term root) {
+        this.source = source;
+        this.variables = variables;
+        this.root = root;
+    }
+
+    /**
+     * Compile an expression
+     *
+     * @param source    the expression
+     * @param variables the names of the variables, in the order they are passed when evaluating
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the expression is invalid or uses an unknown variable
+     */
+    public static ConfigExpression compile(final String source, final String... variables) {
+        final Parser parser = new Parser(source, variables);
+        final Term root = parser.parseExpression();
+        parser.skipWhitespace();
+        if (parser.pos < source.length()) {
+            throw parser.error("unexpected '" + source.charAt(parser.pos) + "'");
+        }
+        return new ConfigExpression(source, variables.clone(), root);
+    }
+
+    /**
+     * @return the expression as written in the config
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the names of the variables, in the order they are passed when evaluating
+     */
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    /**
+     * @return the result of an expression without variables, variables are 0
+     */
+    public double evaluate() {
+        return evaluate(0, 0, 0, 0);
+    }
+
+    /**
+     * @param first the value of the first variable
+     * @return the result, further variables are 0
+     */
+    public double evaluate(final double first) {
+        return evaluate(first, 0, 0, 0);
+    }
+
+    /**
+     * @param first  the value of the first variable
+     * @param second the value of the second variable
+     * @return the result, further variables are 0
+     */
+    public double evaluate(final double first, final double second) {
+        return evaluate(first, second, 0, 0);
+    }
+
+    /**
+     * @param first  the value of the first variable
+     * @param second the value of the second variable
+     * @param third  the value of the third variable
+     * @return the result, further variables are 0
+     */
+    public double evaluate(final double first, final double second, final double third) {
+        return evaluate(first, second, third, 0);
+    }
+
+    /**
+     * @param first  the value of the first variable
+     * @param second the value of the second variable
+     * @param third  the value of the third variable
+     * @param fourth the value of the fourth variable
+     * @return the result, further variables are 0
+     */
+    public double evaluate(final double first, final double second, final double third, final double fourth) {
+        if (variables.length > 4) {
+            return root.evaluate(Arrays.copyOf(new double[]{first, second, third, fourth}, variables.length));
+        }
+        final double[] values = SCRATCH.get();
+        values[0] = first;
+        values[1] = second;
+        values[2] = third;
+        values[3] = fourth;
+        return root.evaluate(values);
+    }
+
+    /**
+     * Evaluate with any amount of variables
+     *
+     * @param values the values of the variables, in the order of getVariables() - reusing the array avoids allocation
+     * @return the result
+     */
+    public double evaluate(final double[] values) {
+        if (values.length < variables.length) {
+            return root.evaluate(Arrays.copyOf(values, variables.length));
+        }
+        return root.evaluate(values);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Recursive descent parser turning the source into Terms, folding constant parts
+     */
+    private static final class Parser {
+        private final String source;
+        private final String[] variables;
+        private int pos;
+
+        private Parser(final String source, final String[] variables) {
+            this.source = source;
+            this.variables = variables;
+        }
+
+        private IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(message + " at position " + (pos + 1) + " of \"" + source + "\"");
+        }
+
+        private void skipWhitespace() {
+            while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean accept(final char c) {
+            skipWhitespace();
+            if (pos < source.length() && source.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        // expression := term (('+' | '-') term)*
+        private Term parseExpression() {
+            Term result = parseTerm();
+            while (true) {
+                if (accept('+')) {
+                    final Term left = result;
+                    final Term right = parseTerm();
+                    result = fold(values -> left.evaluate(values) + right.evaluate(values), left, right);
+                } else if (accept('-')) {
+                    final Term left = result;
+                    final Term right = parseTerm();
+                    result = fold(values -> left.evaluate(values) - right.evaluate(values), left, right);
+                } else {
+                    return result;
+                }
+            }
+        }
+
+        // term := unary (('*' | '/' | '%') unary)*
+        private Term parseTerm() {
+            Term result = parseUnary();
+            while (true) {
+                if (accept('*')) {
+                    final Term left = result;
+                    final Term right = parseUnary();
+                    result = fold(values -> left.evaluate(values) * right.evaluate(values), left, right);
+                } else if (accept('/')) {
+                    final Term left = result;
+                    final Term right = parseUnary();
+                    result = fold(values -> left.evaluate(values) / right.evaluate(values), left, right);
+                } else if (accept('%')) {
+                    final Term left = result;
+                    final Term right = parseUnary();
+                    result = fold(values -> left.evaluate(values) % right.evaluate(values), left, right);
+                } else {
+                    return result;
+                }
+            }
+        }
+
+        // unary := ('-' | '+') unary | power
+        private Term parseUnary() {
+            if (accept('-')) {
+                final Term inner = parseUnary();
+                return fold(values -> -inner.evaluate(values), inner);
+            }
+            if (accept('+')) {
+                return parseUnary();
+            }
+            return parsePower();
+        }
+
+        // power := primary ('^' unary)?
+        private Term parsePower() {
+            final Term base = parsePrimary();
+            if (accept('^')) {
+                final Term exponent = parseUnary();
+                return fold(values -> Math.pow(base.evaluate(values), exponent.evaluate(values)), base, exponent);
+            }
+            return base;
+        }
+
+        // primary := number | variable | function '(' arguments ')' | '(' expression ')'
+        private Term parsePrimary() {
+            if (accept('(')) {
+                final Term inner = parseExpression();
+                if (!accept(')')) {
+                    throw error("missing ')'");
+                }
+                return inner;
+            }
+            skipWhitespace();
+            if (pos >= source.length()) {
+                throw error("unexpected end");
+            }
+            final int start = pos;
+            final char first = source.charAt(pos);
+            if (Character.isDigit(first) || first == '.') {
+                while (pos < source.length() && (Character.isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) {
+                    pos++;
+                }
+                if (pos < source.length() && (source.charAt(pos) == 'e' || source.charAt(pos) == 'E')) {
+                    // an exponent like 1.0E7 or 1e-3, an e without digits is not part of the number
+                    int digits = pos + 1;
+                    if (digits < source.length() && (source.charAt(digits) == '+' || source.charAt(digits) == '-')) {
+                        digits++;
+                    }
+                    if (digits < source.length() && Character.isDigit(source.charAt(digits))) {
+                        pos = digits;
+                        while (pos < source.length() && Character.isDigit(source.charAt(pos))) {
+                            pos++;
+                        }
+                    }
+                }
+                try {
+                    return new Constant(Double.parseDouble(source.substring(start, pos)));
+                } catch (NumberFormatException e) {
+                    pos = start;
+                    throw error("invalid number");
+                }
+            }
+            if (Character.isLetter(first) || first == '_') {
+                while (pos < source.length() && (Character.isLetterOrDigit(source.charAt(pos)) || source.charAt(pos) == '_')) {
+                    pos++;
+                }
+                final String name = source.substring(start, pos);
+                if (accept('(')) {
+                    return parseFunction(name, start);
+                }
+                for (int index = 0; index < variables.length; index++) {
+                    if (variables[index].equals(name)) {
+                        final int variable = index;
+                        return values -> values[variable];
+                    }
+                }
+                pos = start;
+                throw error("unknown variable '" + name + "'");
+            }
+            throw error("unexpected '" + first + "'");
+        }
+
+        private Term parseFunction(final String name, final int start) {
+            final List<Term> arguments = new ArrayList<>();
+            if (!accept(')')) {
+                do {
+                    arguments.add(parseExpression());
+                } while (accept(','));
+                if (!accept(')')) {
+                    throw error("missing ')'");
+                }
+            }
+            final Term[] args = arguments.toArray(new Term[0]);
+            final int expected;
+            final Term result;
+            switch (name) {
+                case "abs":
+                    expected = 1;
+                    result = values -> Math.abs(args[0].evaluate(values));
+                    break;
+                case "ceil":
+                    expected = 1;
+                    result = values -> Math.ceil(args[0].evaluate(values));
+                    break;
+                case "floor":
+                    expected = 1;
+                    result = values -> Math.floor(args[0].evaluate(values));
+                    break;
+                case "round":
+                    expected = 1;
+                    result = values -> Math.round(args[0].evaluate(values));
+                    break;
+                case "sqrt":
+                    expected = 1;
+                    result = values -> Math.sqrt(args[0].evaluate(values));
+                    break;
+                case "log":
+                    expected = 1;
+                    result = values -> Math.log(args[0].evaluate(values));
+                    break;
+                case "exp":
+                    expected = 1;
+                    result = values -> Math.exp(args[0].evaluate(values));
+                    break;
+                case "min":
+                    expected = 2;
+                    result = values -> Math.min(args[0].evaluate(values), args[1].evaluate(values));
+                    break;
+                case "max":
+                    expected = 2;
+                    result = values -> Math.max(args[0].evaluate(values), args[1].evaluate(values));
+                    break;
+                case "clamp":
+                    expected = 3;
+                    result = values -> Math.max(args[1].evaluate(values), Math.min(args[2].evaluate(values), args[0].evaluate(values)));
+                    break;
+                default:
+                    pos = start;
+                    throw error("unknown function '" + name + "'");
+            }
+            if (args.length != expected) {
+                pos = start;
+                throw error(name + " expects " + expected + " argument" + (expected == 1 ? "" : "s") + ", " + args.length + " given");
+            }
+            return fold(result, args);
+        }
+
+        /**
+         * Replace a term by its result if all its parts are constant
+         */
+        private static Term fold(final Term term, final Term... parts) {
+            for (final Term part : parts) {
+                if (!(part instanceof Constant)) {
+                    return term;
+                }
+            }
+            return new Constant(term.evaluate(new double[0]));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package net.slipcor.core;
+
+import java.util.List;
+
+public interface ConfigListener {
+    /**
+     * Handle the changes of one reload, only called if anything this listener subscribed to changed
+     *
+     * @param changes the changed values the listener subscribed to
+     */
+    void onChange(List<ConfigChange> changes);
+}
@@ -0,0 +1,57 @@
+package net.slipcor.core;
+
+/**
+ * A named layer of config overrides, for example a world, or a region within a world as "world/region".
+ *
+ * Get an instance once via CoreConfig.getScope() and keep it - the values of the scope are resolved
+ * when the config loads, so reading them through the scope costs the same as reading the global values.
+ */
+public final class ConfigScope {
+    private final String name;
+    private volatile Resolved resolved;
+
+    /**
+     * The resolved values of a scope, and the snapshot they belong to
+     */
+    private static final class Resolved {
+        private final ConfigSnapshot source;
+        private final ConfigSnapshot values;
+
+        private Resolved(final ConfigSnapshot source, final ConfigSnapshot values) {
+            this.source = source;
+            this.values = values;
+        }
+    }
+
+    ConfigScope(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the scope name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the values of this scope within a snapshot
+     *
+     * @param current the current snapshot
+     * @return the values with the overrides of this scope and its parents applied
+     */
+    ConfigSnapshot resolve(final ConfigSnapshot current) {
+        final Resolved cached = resolved;
+        if (cached != null && cached.source == current) {
+            return cached.values;
+        }
+        final ConfigSnapshot values = current.getScope(name);
+        resolved = new Resolved(current, values);
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,108 @@
+package net.slipcor.core;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A hashed membership index of a SET entry, built once when the config loads.
+ *
+ * Items are hashed case-folded, so the same table answers exact and case-insensitive lookups.
+ * Large sets get a Bloom filter in front, so most misses do not touch the table at all.
+ * Lookups do not allocate.
+ */
+final class ConfigSet {
+    private static final int BLOOM_THRESHOLD = 1024; // sets this large get a Bloom filter
+    private static final int BLOOM_BITS_PER_ITEM = 16;
+
+    private final String[] items;
+    private final int[] hashes;
+    private final int mask;
+    private final long[] bloom;
+    private final int bloomMask;
+
+    /**
+     * @param values the items of the set, duplicates are ignored
+     */
+    ConfigSet(final Collection<String> values) {
+        final Set<String> unique = new LinkedHashSet<>(values);
+        unique.remove(null);
+
+        final int capacity = Integer.highestOneBit(Math.max(4, unique.size() * 2 - 1)) << 1;
+        items = new String[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+
+        if (unique.size() >= BLOOM_THRESHOLD) {
+            final int bits = Integer.highestOneBit(unique.size() * BLOOM_BITS_PER_ITEM - 1) << 1;
+            bloom = new long[bits >>> 6];
+            bloomMask = bits - 1;
+        } else {
+            bloom = null;
+            bloomMask = 0;
+        }
+
+        for (final String item : unique) {
+            final int hash = hash(item);
+            int pos = hash & mask;
+            while (items[pos] != null) {
+                pos = (pos + 1) & mask;
+            }
+            items[pos] = item;
+            hashes[pos] = hash;
+            if (bloom != null) {
+                final int first = hash & bloomMask;
+                final int second = Integer.rotateLeft(hash, 16) & bloomMask;
+                bloom[first >>> 6] |= 1L << first;
+                bloom[second >>> 6] |= 1L << second;
+            }
+        }
+    }
+
+    /**
+     * @param value the value to look for
+     * @return whether the set holds exactly this value
+     */
+    boolean contains(final String value) {
+        return find(value, false);
+    }
+
+    /**
+     * @param value the value to look for
+     * @return whether the set holds the value, ignoring case
+     */
+    boolean containsIgnoreCase(final String value) {
+        return find(value, true);
+    }
+
+    private boolean find(final String value, final boolean ignoreCase) {
+        if (value == null) {
+            return false;
+        }
+        final int hash = hash(value);
+        if (bloom != null) {
+            final int first = hash & bloomMask;
+            final int second = Integer.rotateLeft(hash, 16) & bloomMask;
+            if ((bloom[first >>> 6] & 1L << first) == 0 || (bloom[second >>> 6] & 1L << second) == 0) {
+                return false;
+            }
+        }
+        for (int pos = hash & mask; items[pos] != null; pos = (pos + 1) & mask) {
+            if (hashes[pos] == hash && (ignoreCase ? items[pos].equalsIgnoreCase(value) : items[pos].equals(value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hash a string case-folded the way String.equalsIgnoreCase() compares it
+     */
+    private static int hash(final String value) {
+        int hash = 0;
+        for (int pos = 0; pos < value.length(); pos++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(value.charAt(pos)));
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,98 @@
+package net.slipcor.core;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A config section split into one file per child, each loaded on first access.
+ *
+ * The node "section.child.some.value" is read from "folder/child.yml" as "some.value".
+ * Files are read with the backend of the config and checked against its ConfigEntries.
+ * Only the most recently used children are kept in memory.
+ */
+final class ConfigShards {
+    private final CoreConfig config;
+    private final String prefix;
+    private final File folder;
+    private final Map<String, ConfigSnapshot> loaded;
+
+    /**
+     * @param config    the config reading the files
+     * @param section   the section that is split into files
+     * @param folder    the folder holding one file per child of the section
+     * @param maxLoaded how many children to keep in memory
+     */
+    ConfigShards(final CoreConfig config, final String section, final File folder, final int maxLoaded) {
+        this.config = config;
+        this.prefix = section + '.';
+        this.folder = folder;
+        this.loaded = new LinkedHashMap<String, ConfigSnapshot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, ConfigSnapshot> eldest) {
+                return size() > maxLoaded;
+            }
+        };
+    }
+
+    /**
+     * @param node the full config node path
+     * @return whether the node belongs to a child of this section
+     */
+    boolean contains(final String node) {
+        return node.length() > prefix.length() && node.startsWith(prefix);
+    }
+
+    /**
+     * Get the values of the child a node belongs to, loading it if needed
+     *
+     * @param node the full config node path
+     * @return the values of the child, null if the node is not part of this section
+     */
+    ConfigSnapshot get(final String node) {
+        if (!contains(node)) {
+            return null;
+        }
+        final int end = node.indexOf('.', prefix.length());
+        final String child = node.substring(prefix.length(), end < 0 ? node.length() : end);
+
+        synchronized (loaded) {
+            final ConfigSnapshot result = loaded.get(child);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        final ConfigSnapshot result = load(child);
+
+        synchronized (loaded) {
+            final ConfigSnapshot other = loaded.get(child);
+            if (other != null) {
+                return other; // another thread was faster
+            }
+            loaded.put(child, result);
+        }
+        return result;
+    }
+
+    /**
+     * Forget all loaded children, so they are read from disk again
+     */
+    void clear() {
+        synchronized (loaded) {
+            loaded.clear();
+        }
+    }
+
+    /**
+     * Read a child file into a snapshot, checking it like the main config
+     *
+     * @param child the child name
+     * @return the values, an empty snapshot if there is no file
+     */
+    private ConfigSnapshot load(final String child) {
+        final ConfigSnapshot.Values values = config.loadShard(new File(folder, child + ".yml"), prefix + child + '.');
+        return new ConfigSnapshot(new ConfigEntry[0], values, Collections.<String, ConfigSnapshot.Values>emptyMap());
+    }
+}
@@ -0,0 +1,307 @@
+package net.slipcor.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable set of config values, built completely on reload and then published at once.
+ *
+ * Readers grab the current instance once and get a consistent view without locking.
+ */
+final class ConfigSnapshot {
+    static final byte SLOT_BOOLEAN = 1;
+    static final byte SLOT_INT = 2;
+    static final byte SLOT_DOUBLE = 4;
+    static final byte SLOT_STRING = 8;
+
+    static final ConfigSnapshot EMPTY = new ConfigSnapshot(new ConfigEntry[0], new Values(),
+            Collections.<String, Values>emptyMap());
+
+    /**
+     * The values of a snapshot by node, while it is being built
+     */
+    static final class Values {
+        final Map<String, Boolean> booleans = new HashMap<>();
+        final Map<String, Integer> ints = new HashMap<>();
+        final Map<String, Double> doubles = new HashMap<>();
+        final Map<String, String> strings = new HashMap<>();
+        final Map<String, List<String>> lists = new HashMap<>();
+        final Map<String, Map<String, Object>> maps = new HashMap<>();
+        final Map<String, ConfigExpression> expressions = new HashMap<>(); // compiled from the strings
+        final Map<String, ConfigSet> sets = new HashMap<>(); // indexed from the lists
+        final Map<String, ConfigEnums> enums = new HashMap<>(); // resolved from the strings, lists and maps
+
+        Values() {
+        }
+
+        Values(final Values base) {
+            booleans.putAll(base.booleans);
+            ints.putAll(base.ints);
+            doubles.putAll(base.doubles);
+            strings.putAll(base.strings);
+            lists.putAll(base.lists);
+            maps.putAll(base.maps);
+            expressions.putAll(base.expressions);
+            sets.putAll(base.sets);
+            enums.putAll(base.enums);
+        }
+
+        /**
+         * Replace the values of all nodes that another set of values has
+         *
+         * @param other the values to put on top
+         */
+        void overlay(final Values other) {
+            for (final String node : other.getNodes()) {
+                booleans.remove(node);
+                ints.remove(node);
+                doubles.remove(node);
+                strings.remove(node);
+                lists.remove(node);
+                maps.remove(node);
+                expressions.remove(node);
+                sets.remove(node);
+                enums.remove(node);
+            }
+            booleans.putAll(other.booleans);
+            ints.putAll(other.ints);
+            doubles.putAll(other.doubles);
+            strings.putAll(other.strings);
+            lists.putAll(other.lists);
+            maps.putAll(other.maps);
+            expressions.putAll(other.expressions);
+            sets.putAll(other.sets);
+            enums.putAll(other.enums);
+        }
+
+        /**
+         * @return all nodes that have a value
+         */
+        Set<String> getNodes() {
+            final Set<String> result = new LinkedHashSet<>();
+            result.addAll(booleans.keySet());
+            result.addAll(ints.keySet());
+            result.addAll(doubles.keySet());
+            result.addAll(strings.keySet());
+            result.addAll(lists.keySet());
+            result.addAll(maps.keySet());
+            return result;
+        }
+    }
+
+    final Map<String, Boolean> booleans;
+    final Map<String, Integer> ints;
+    final Map<String, Double> doubles;
+    final Map<String, String> strings;
+    final Map<String, List<String>> lists;
+    final Map<String, Map<String, Object>> maps;
+
+    private final Values values;
+    final Map<String, Values> overrides; // the override values of each scope
+    private final Map<String, ConfigSnapshot> scopes; // the resolved values of each scope
+
+    final ConfigEntry[] nodes; // the entries the slots belong to
+    private final boolean ordinalSlots; // whether the slot equals the enum ordinal of every node
+    private final Map<ConfigEntry, Integer> slotIndex;
+
+    final byte[] content; // bit mask of the SLOT_* values that are set
+    final boolean[] booleanSlots;
+    final int[] intSlots;
+    final double[] doubleSlots;
+    final String[] stringSlots;
+    final List<?>[] listSlots;
+    final Map<?, ?>[] mapSlots;
+    final ConfigExpression[] expressionSlots;
+    final ConfigSet[] setSlots;
+    final ConfigEnums[] enumSlots;
+
+    /**
+     * Create a snapshot, taking ownership of the given values
+     *
+     * @param nodes     all ConfigEntry instances, the position is the slot
+     * @param values    the values by node
+     * @param overrides the values overriding the global values, by scope - "a/b" overrides "a"
+     */
+    ConfigSnapshot(final ConfigEntry[] nodes, final Values values, final Map<String, Values> overrides) {
+        this(nodes.clone(), createIndex(nodes), values, overrides);
+    }
+
+    private ConfigSnapshot(final ConfigEntry[] nodes, final Map<ConfigEntry, Integer> slotIndex,
+                           final Values values, final Map<String, Values> overrides) {
+        this.nodes = nodes;
+        this.slotIndex = slotIndex;
+        this.values = values;
+        this.overrides = Collections.unmodifiableMap(overrides);
+
+        booleans = Collections.unmodifiableMap(values.booleans);
+        ints = Collections.unmodifiableMap(values.ints);
+        doubles = Collections.unmodifiableMap(values.doubles);
+        strings = Collections.unmodifiableMap(values.strings);
+        lists = Collections.unmodifiableMap(values.lists);
+        maps = Collections.unmodifiableMap(values.maps);
+
+        boolean ordinals = true;
+        for (int slot = 0; slot < nodes.length; slot++) {
+            if (!(nodes[slot] instanceof Enum) || ((Enum<?>) nodes[slot]).ordinal() != slot) {
+                ordinals = false;
+            }
+        }
+        ordinalSlots = ordinals;
+
+        final int size = nodes.length;
+        content = new byte[size];
+        booleanSlots = new boolean[size];
+        intSlots = new int[size];
+        doubleSlots = new double[size];
+        stringSlots = new String[size];
+        listSlots = new List<?>[size];
+        mapSlots = new Map<?, ?>[size];
+        expressionSlots = new ConfigExpression[size];
+        setSlots = new ConfigSet[size];
+        enumSlots = new ConfigEnums[size];
+
+        for (int slot = 0; slot < size; slot++) {
+            final String node = nodes[slot].getNode();
+            final Boolean bool = booleans.get(node);
+            if (bool != null) {
+                booleanSlots[slot] = bool;
+                content[slot] |= SLOT_BOOLEAN;
+            }
+            final Integer integer = ints.get(node);
+            if (integer != null) {
+                intSlots[slot] = integer;
+                content[slot] |= SLOT_INT;
+            }
+            final Double dbl = doubles.get(node);
+            if (dbl != null) {
+                doubleSlots[slot] = dbl;
+                content[slot] |= SLOT_DOUBLE;
+            }
+            final String string = strings.get(node);
+            if (string != null) {
+                stringSlots[slot] = string;
+                content[slot] |= SLOT_STRING;
+            }
+            listSlots[slot] = lists.get(node);
+            mapSlots[slot] = maps.get(node);
+            expressionSlots[slot] = values.expressions.get(node);
+            setSlots[slot] = values.sets.get(node);
+            enumSlots[slot] = values.enums.get(node);
+        }
+
+        // resolve the scopes, parents first, so every scope starts from the values of its parent
+        final List<String> names = new ArrayList<>(overrides.keySet());
+        names.sort((one, two) -> Integer.compare(getDepth(one), getDepth(two)));
+
+        final Map<String, ConfigSnapshot> resolved = new HashMap<>();
+        for (final String name : names) {
+            final ConfigSnapshot parent = resolveScope(resolved, name);
+            final Values scoped = new Values(parent.values);
+            scoped.overlay(overrides.get(name));
+            resolved.put(name, new ConfigSnapshot(nodes, slotIndex, scoped, Collections.<String, Values>emptyMap()));
+        }
+        scopes = resolved;
+    }
+
+    private static Map<ConfigEntry, Integer> createIndex(final ConfigEntry[] nodes) {
+        final Map<ConfigEntry, Integer> result = new IdentityHashMap<>();
+        for (int slot = 0; slot < nodes.length; slot++) {
+            result.put(nodes[slot], slot);
+        }
+        return result;
+    }
+
+    private static int getDepth(final String scope) {
+        int depth = 0;
+        for (int pos = scope.indexOf('/'); pos >= 0; pos = scope.indexOf('/', pos + 1)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Find the resolved values of the closest parent of a scope
+     */
+    private ConfigSnapshot resolveScope(final Map<String, ConfigSnapshot> resolved, final String name) {
+        String parent = name;
+        while (parent.lastIndexOf('/') > 0) {
+            parent = parent.substring(0, parent.lastIndexOf('/'));
+            final ConfigSnapshot result = resolved.get(parent);
+            if (result != null) {
+                return result;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Get the values of a scope, which are the global values with the overrides of the scope and its parents
+     *
+     * @param name the scope name, "a/b" being a child of "a"
+     * @return the values to use within the scope
+     */
+    ConfigSnapshot getScope(final String name) {
+        final ConfigSnapshot result = scopes.get(name);
+        return result == null ? resolveScope(scopes, name) : result;
+    }
+
+    /**
+     * @return the values this snapshot was built from
+     */
+    Values getValues() {
+        return values;
+    }
+
+    /**
+     * Get the value of a node, whatever type it has
+     *
+     * @param node the full config node path
+     * @return the value, null if there is none
+     */
+    Object getValue(final String node) {
+        if (booleans.containsKey(node)) {
+            return booleans.get(node);
+        }
+        if (ints.containsKey(node)) {
+            return ints.get(node);
+        }
+        if (doubles.containsKey(node)) {
+            return doubles.get(node);
+        }
+        if (strings.containsKey(node)) {
+            return strings.get(node);
+        }
+        if (lists.containsKey(node)) {
+            return lists.get(node);
+        }
+        return maps.get(node);
+    }
+
+    /**
+     * @return all nodes that have a value
+     */
+    Set<String> getNodes() {
+        return values.getNodes();
+    }
+
+    /**
+     * Get the slot of a ConfigEntry
+     *
+     * @param entry the entry to look up
+     * @return the slot index, -1 if the entry has no slot
+     */
+    int getSlot(final ConfigEntry entry) {
+        if (ordinalSlots && entry instanceof Enum) {
+            final int ordinal = ((Enum<?>) entry).ordinal();
+            return ordinal < nodes.length && nodes[ordinal] == entry ? ordinal : -1;
+        }
+        final Integer slot = slotIndex.get(entry);
+        return slot == null ? -1 : slot;
+    }
+}
@@ -0,0 +1,163 @@
+package net.slipcor.core;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of config changes that is validated when collected and applied at once.
+ *
+ * Committing writes the config file once and reloads the value maps once, no matter how many
+ * values changed. If writing fails, all changes are rolled back. Use from one thread at a time.
+ */
+public final class ConfigTransaction {
+    private final CoreConfig config;
+    private final Map<ConfigEntry, Object> changes = new LinkedHashMap<>();
+    private boolean done;
+
+    ConfigTransaction(final CoreConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Add a change to the batch, replacing an earlier change of the same entry
+     *
+     * @param entry the entry to update
+     * @param value the value to set, null to remove the node
+     * @return this transaction
+     * @throws IllegalArgumentException if the value does not match the type of the entry
+     * @throws IllegalStateException    if the transaction has already been committed
+     */
+    public ConfigTransaction set(final ConfigEntry entry, final Object value) {
+        if (done) {
+            throw new IllegalStateException("Transaction has already been committed");
+        }
+        changes.put(entry, validate(entry, value));
+        return this;
+    }
+
+    /**
+     * @return the entries changed so far
+     */
+    public List<ConfigEntry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(changes.keySet()));
+    }
+
+    /**
+     * Apply all changes, write the config file and reload the value maps
+     *
+     * @throws IOException           if writing failed - the config is left as it was before
+     * @throws IllegalStateException if the transaction has already been committed
+     */
+    public void commit() throws IOException {
+        if (done) {
+            throw new IllegalStateException("Transaction has already been committed");
+        }
+        done = true;
+        if (!changes.isEmpty()) {
+            config.commit(changes);
+        }
+    }
+
+    /**
+     * Check a value against the type of an entry
+     *
+     * @param entry the entry to update
+     * @param value the value to set
+     * @return the value to store
+     */
+    private static Object validate(final ConfigEntry entry, final Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (entry.getType()) {
+            case BOOLEAN:
+                if (value instanceof Boolean) {
+                    return value;
+                }
+                break;
+            case INT:
+                if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    return ((Number) value).intValue();
+                }
+                if (value instanceof Long && (Long) value == ((Long) value).intValue()) {
+                    return ((Long) value).intValue();
+                }
+                break;
+            case DOUBLE:
+                if (value instanceof Number) {
+                    return ((Number) value).doubleValue();
+                }
+                break;
+            case STRING:
+                if (value instanceof String) {
+                    return value;
+                }
+                break;
+            case LIST:
+            case SET:
+                if (value instanceof List) {
+                    return new ArrayList<>((List<?>) value);
+                }
+                break;
+            case MAP:
+                if (value instanceof ConfigurationSection) {
+                    return CoreConfig.toImmutable(value);
+                }
+                if (value instanceof Map) {
+                    return new LinkedHashMap<>((Map<?, ?>) value);
+                }
+                break;
+            case ENUM:
+            case MATERIAL:
+                if (value instanceof Enum) {
+                    return checkNames(entry, ((Enum<?>) value).name());
+                }
+                if (value instanceof String) {
+                    return checkNames(entry, value);
+                }
+                if (value instanceof Collection) {
+                    final List<String> names = new ArrayList<>();
+                    for (final Object item : (Collection<?>) value) {
+                        names.add(item instanceof Enum ? ((Enum<?>) item).name() : String.valueOf(item));
+                    }
+                    return checkNames(entry, names);
+                }
+                break;
+            case EXPRESSION:
+                if (value instanceof String || value instanceof Number) {
+                    ConfigExpression.compile(String.valueOf(value), entry.getVariables());
+                    return value;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(entry.getNode() + " can not be set");
+        }
+        throw new IllegalArgumentException(entry.getNode() + " expects " + entry.getType() + ", "
+                + value.getClass().getSimpleName() + " given");
+    }
+
+    /**
+     * Check that every name of an ENUM or MATERIAL value resolves to a constant
+     *
+     * @param entry the entry to update
+     * @param names a name or a list of names
+     * @return the names
+     */
+    private static Object checkNames(final ConfigEntry entry, final Object names) {
+        final Class<? extends Enum<?>> type = ConfigEnums.getType(entry);
+        if (type == null) {
+            throw new IllegalArgumentException(entry.getNode() + " declares no enum type");
+        }
+        ConfigEnums.resolve(type, names, problem -> {
+            throw new IllegalArgumentException(entry.getNode() + ": " + problem);
+        });
+        return names;
+    }
+}
@@ -0,0 +1,131 @@
+package net.slipcor.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache, safe for concurrent use, dropping the least recently used entries when full.
+ *
+ * The entries are spread over independently locked segments, so threads rarely wait for each other.
+ * Hits and misses are counted, to check whether caching pays off.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class CoreCache<K, V> {
+    private static final int SEGMENTS = 16;
+
+    private final Map<K, V>[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize how many entries to keep at most
+     */
+    @SuppressWarnings("unchecked")
+    public CoreCache(final int maxSize) {
+        final int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        segments = new Map[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+                    return size() > segmentSize;
+                }
+            };
+        }
+    }
+
+    private Map<K, V> getSegment(final Object key) {
+        final int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the cached value, null if there is none
+     */
+    public V get(final K key) {
+        final Map<K, V> segment = getSegment(key);
+        final V result;
+        synchronized (segment) {
+            result = segment.get(key);
+        }
+        if (result == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Get a cached value, computing and caching it if there is none
+     *
+     * @param key      the key to look up
+     * @param function computes the value of a key that is not cached, outside of any lock
+     * @return the cached or computed value
+     */
+    public V get(final K key, final Function<? super K, ? extends V> function) {
+        final V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final V result = function.apply(key);
+        if (result != null) {
+            put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * @param key   the key
+     * @param value the value to cache
+     */
+    public void put(final K key, final V value) {
+        final Map<K, V> segment = getSegment(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    /**
+     * Forget all entries, the counters are kept
+     */
+    public void clear() {
+        for (final Map<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the amount of cached entries
+     */
+    public int size() {
+        int result = 0;
+        for (final Map<K, V> segment : segments) {
+            synchronized (segment) {
+                result += segment.size();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return how often a lookup found a value
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how often a lookup found nothing
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -1,12 +1,36 @@
 package net.slipcor.core;
 
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
 
 public abstract class CoreConfig {
 
@@ -14,8 +38,9 @@ public abstract class CoreConfig {
     private final String configName;
     protected final File configFile;
 
-    protected final YamlConfiguration cfg;
+    private final YamlConfiguration cfg; // access via getYamlConfiguration(), it is parsed late when the binary cache is used
 
+    // read-only views of the current snapshot, writing throws UnsupportedOperationException - use setValue()
     protected final Map<String, Boolean> booleans;
     protected final Map<String, Integer> ints;
     protected final Map<String, Double> doubles;
@@ -23,6 +48,38 @@ public abstract class CoreConfig {
 
     protected String[] emptyNodes; // a list of nodes that will not have valuable content
 
+    private volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;
+    private final Set<String> changedNodes = ConcurrentHashMap.newKeySet(); // set via setValue() since the last reload
+    private volatile Map<String, ConfigEntry> nodeIndex; // ConfigEntries by node, built on first use
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final List<ConfigShards> shards = new CopyOnWriteArrayList<>();
+    private final CoreCache<String, ConfigShards> shardIndex = new CoreCache<>(1024); // the shards of nodes read recently, not of other nodes
+
+    private String overrideSection; // the section holding the overrides of each scope
+    private final Map<String, ConfigScope> scopes = new ConcurrentHashMap<>();
+    private final Map<ConfigEntry, ConfigExpression> defaultExpressions = new ConcurrentHashMap<>();
+    private final Map<ConfigEntry, ConfigSet> defaultSets = new ConcurrentHashMap<>();
+    private final Map<ConfigEntry, ConfigEnums> defaultEnums = new ConcurrentHashMap<>();
+    private final Set<String> reported = new HashSet<>(); // problems reported during the current load
+    private final List<Map.Entry<Level, String>> problems = new ArrayList<>(); // messages of the current load, kept in the binary cache
+
+    private ConfigBackend backend = ConfigBackend.BUKKIT;
+    private final Map<String, List<String>> comments = new HashMap<>(); // comment lines found in the file, by node
+
+    private boolean binaryCache;
+    private volatile boolean yamlPending; // whether the values came from the binary cache and cfg is still empty
+
+    private byte[] writtenHash; // hash of the content we know to be on disk
+    private final Object writeLock = new Object();
+
+    // write-behind, saving on a background thread after a delay
+    private long writeDelay = -1;
+    private final Object pendingLock = new Object();
+    private ScheduledExecutorService writer;
+    private CompletableFuture<Void> pendingWrite;
+    private CompletableFuture<Void> runningWrite; // the write in progress, null if there is none
+
     public CoreConfig(CorePlugin plugin, String configName, File configFile) {
         this.plugin = plugin;
         this.configName = configName;
@@ -30,167 +87,269 @@ public abstract class CoreConfig {
 
         cfg = new YamlConfiguration();
 
-        booleans = new HashMap<>();
-        ints = new HashMap<>();
-        doubles = new HashMap<>();
-        strings = new HashMap<>();
+        booleans = new SnapshotView<>(current -> current.booleans);
+        ints = new SnapshotView<>(current -> current.ints);
+        doubles = new SnapshotView<>(current -> current.doubles);
+        strings = new SnapshotView<>(current -> current.strings);
     }
 
     /**
      * Append the comments.
      *
-     * Iterate over the config file and add comments, if we didn't do that already.
+     * Write the current config, including comments, to disk - unless the file already has that content.
      */
     public void appendComments() {
         try {
+            writeConfig();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-            final FileInputStream fis = new FileInputStream(configFile);
-            final DataInputStream dis = new DataInputStream(fis);
-            final BufferedReader reader = new BufferedReader(new InputStreamReader(dis));
-
-            final File tempFile = new File(plugin.getDataFolder(), "config-temp.yml");
-            if (!tempFile.exists()) {
-                tempFile.createNewFile();
+    /**
+     * Serialize the config and write it, if the content changed
+     *
+     * @throws IOException if writing failed
+     */
+    private void writeConfig() throws IOException {
+        ensureYaml();
+        synchronized (writeLock) {
+            final String serialized;
+            synchronized (cfg) {
+                serialized = emit();
             }
+            final byte[] content = serialized.getBytes(StandardCharsets.UTF_8);
+            final byte[] hash = CoreFiles.hash(content);
 
-            final FileOutputStream fos = new FileOutputStream(tempFile);
-            final DataOutputStream dos = new DataOutputStream(fos);
-            final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(dos));
-
-            String readLine;
-
-            int indent = 0;
+            if (writtenHash == null) {
+                writtenHash = CoreFiles.hash(configFile);
+            }
+            if (CoreFiles.sameHash(hash, writtenHash)) {
+                return;
+            }
 
-            String key = null;
+            CoreFiles.writeAtomically(configFile, content);
+            writtenHash = hash;
+        }
+    }
 
-            while ((readLine = reader.readLine()) != null) {
-                if (key == null && writer.toString().length() < 1 && !readLine.startsWith("#")) {
-                    writer.append("# === [ " + configName + " ] ===");
-                    writer.newLine();
-                }
+    /**
+     * Check whether some content is what we last wrote or read
+     *
+     * @param hash the hash of the content
+     * @return whether the config already reflects that content
+     */
+    boolean isKnownContent(final byte[] hash) {
+        synchronized (writeLock) {
+            return CoreFiles.sameHash(hash, writtenHash);
+        }
+    }
 
-                if (readLine.trim().startsWith("#") || readLine.trim().isEmpty()) {
-                    continue;
+    /**
+     * Replace the config content with a configuration that has been loaded elsewhere, then reload the maps
+     *
+     * @param loaded         the freshly loaded configuration
+     * @param loadedComments the comment lines found in the file
+     * @param hash           the hash of the file content it was loaded from
+     */
+    void reload(final YamlConfiguration loaded, final Map<String, List<String>> loadedComments, final byte[] hash) {
+        synchronized (cfg) {
+            yamlPending = false;
+            comments.clear();
+            comments.putAll(loadedComments);
+            for (final String key : cfg.getKeys(false)) {
+                cfg.set(key, null);
+            }
+            for (final String key : loaded.getKeys(true)) {
+                if (loaded.isConfigurationSection(key)) {
+                    cfg.createSection(key);
+                } else {
+                    cfg.set(key, loaded.get(key));
                 }
+            }
+        }
+        synchronized (writeLock) {
+            writtenHash = hash;
+        }
+        reloadMaps();
+    }
 
-                final int firstContentCharacter = (indent * 2);
-
-                if (readLine.contains(":")) {
-                    final String newStringLine = readLine.split(":")[0] + ":";
-                    int pos;
-                    final StringBuilder builder = new StringBuilder();
-                    int newDigit = -1;
-
-                    for (pos = 0; pos<newStringLine.length(); pos++) {
-                        if (newStringLine.charAt(pos) != ' '
-                                && newStringLine.charAt(pos) != ':') {
-                            if (newDigit == -1) {
-                                newDigit = pos;
-                            }
-                            builder.append(newStringLine.charAt(pos));
-                        } else if (newStringLine.charAt(pos) == ' ') {
-                            if (builder.length() > 0) {
-                                builder.append(newStringLine.charAt(pos));
-                            }
-                        } else if (newStringLine.charAt(pos) != ':') {
-                            builder.append(newStringLine.charAt(pos));
-                        }
-                    }
-
-                    if (key == null) {
-                        key = builder.toString();
-                    }
-
-                    String[] split = key.split("\\.");
-
-                    if (newDigit > firstContentCharacter) {
-                        indent++;
-
-                        final String[] newString = new String[split.length+1];
-                        System.arraycopy(split, 0, newString, 0, split.length);
-                        newString[split.length] = builder.toString();
-                        split = newString;
-                    } else if (newDigit < firstContentCharacter) {
-
-                        indent = (newDigit/2);
-
-                        final String[] newString = new String[indent+1];
-
-                        System.arraycopy(split, 0, newString, 0, indent);
-
-                        newString[newString.length-1] = builder.toString();
-                        split = newString;
-                    } else {
-                        split[split.length-1] = builder.toString();
-                    }
-
-                    final StringBuilder buffer = new StringBuilder();
-                    for (String string : split) {
-                        buffer.append('.');
-                        buffer.append(string);
-                    }
+    /**
+     * Serialize the config and add the comments of our ConfigEntries, in one pass
+     *
+     * @return the commented YML content
+     */
+    private String emit() {
+        return backend.save(cfg, "=== [ " + configName + " ] ===", comments, node -> {
+            final ConfigEntry entry = getByNode(node);
+            return entry == null ? null : entry.getComment();
+        });
+    }
 
-                    key = buffer.substring(1);
+    /**
+     * Parse YML content into cfg, replacing what it held before - call while holding the cfg lock
+     *
+     * @param content the YML content
+     * @throws InvalidConfigurationException if the content is no valid YML
+     */
+    private void parse(final String content) throws InvalidConfigurationException {
+        for (final String key : cfg.getKeys(false)) {
+            cfg.set(key, null);
+        }
+        comments.clear();
+        backend.load(content, cfg, comments);
+        yamlPending = false;
+    }
 
-                    final ConfigEntry entry = this.getByNode(key);
+    /**
+     * Get the ConfigEntry from a full config path
+     *
+     * @param node the config path
+     * @return the ConfigEntry, null if there is none
+     */
+    public ConfigEntry getByNode(final String node) {
+        Map<String, ConfigEntry> index = nodeIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (final ConfigEntry entry : getAllNodes()) {
+                index.put(entry.getNode(), entry);
+            }
+            nodeIndex = index;
+        }
+        return index.get(node);
+    }
 
-                    if (entry == null) {
-                        writer.append(readLine);
-                        writer.newLine();
-                        continue;
-                    }
+    /**
+     * Since v0.4.0 this replaces implementing getByNode(), which now looks the node up in this array
+     *
+     * @return all ConfigEntry enums
+     */
+    protected abstract ConfigEntry[] getAllNodes();
 
-                    final StringBuilder value = new StringBuilder();
+    /**
+     * Attempt to load the config from disk
+     *
+     * @return whether the loading was successful
+     */
+    public abstract boolean load();
 
-                    for (int k=0; k<indent; k++) {
-                        value.append("  ");
-                    }
-                    if (entry.getComment() != null && !entry.getComment().isEmpty()) {
-                        writer.newLine();
-                        writer.append(value);
-                        writer.append("# ");
-                        writer.append(entry.getComment());
-                        writer.newLine();
+    /**
+     * Read the config file and reload the maps. With the binary cache active and matching the file,
+     * the values are read from the cache, the problems found when the cache was written are logged
+     * again, and parsing the YML is postponed until getYamlConfiguration() is called.
+     *
+     * @return whether the loading was successful
+     */
+    protected boolean loadConfigFile() {
+        try {
+            final byte[] content = configFile.exists() ? Files.readAllBytes(configFile.toPath()) : new byte[0];
+            final byte[] hash = CoreFiles.hash(content);
+
+            if (binaryCache) {
+                try {
+                    final List<Map.Entry<Level, String>> cachedProblems = new ArrayList<>();
+                    final ConfigSnapshot cached = ConfigCache.read(getCacheFile(), configFile, hash, getAllNodes(), overrideSection, cachedProblems);
+                    if (cached != null) {
+                        synchronized (writeLock) {
+                            writtenHash = hash;
+                        }
+                        yamlPending = true;
+                        synchronized (reported) {
+                            reported.clear();
+                            problems.clear();
+                        }
+                        for (final Map.Entry<Level, String> problem : cachedProblems) {
+                            log(problem.getKey(), problem.getValue());
+                        }
+                        compileDefaults();
+                        publish(cached);
+                        loadMaterials();
+                        return true;
                     }
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Could not read config cache: " + e.getMessage());
                 }
-                writer.append(readLine);
-                writer.newLine();
             }
 
-            writer.flush();
-            dos.close();
-            fos.close();
-            writer.close();
-            fis.close();
-            dis.close();
-            reader.close();
+            synchronized (cfg) {
+                parse(new String(content, StandardCharsets.UTF_8));
+            }
+            reloadMaps();
 
-            if (!configFile.delete()) {
-                plugin.getLogger().severe("Could not delete un-commented config!");
+            final byte[] writtenContent;
+            synchronized (writeLock) {
+                writtenContent = writtenHash;
             }
-            if (!tempFile.renameTo(configFile)) {
-                plugin.getLogger().severe("Could not rename Config!");
+            if (binaryCache && writtenContent != null) {
+                final List<Map.Entry<Level, String>> loadProblems;
+                synchronized (reported) {
+                    loadProblems = new ArrayList<>(problems);
+                }
+                try {
+                    ConfigCache.write(getCacheFile(), configFile, writtenContent, snapshot, overrideSection, loadProblems);
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Could not write config cache: " + e.getMessage());
+                }
             }
-
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
+            return false;
         }
     }
 
     /**
-     * Get the ConfigEntry from a full config path
+     * Activate the binary cache, a file next to the config holding the values, to skip parsing
+     * the YML on startup when the config did not change. Only used by loadConfigFile().
      *
-     * @param node the config path
-     * @return the ConfigEntry
+     * @param active whether to use the cache
      */
-    public abstract ConfigEntry getByNode(final String node);
+    public void setBinaryCache(final boolean active) {
+        binaryCache = active;
+    }
 
     /**
-     * Attempt to load the config from disk
+     * Choose how the YML is read and written. Only used by loadConfigFile() and when saving.
      *
-     * @return whether the loading was successful
+     * @param backend the backend to use, ConfigBackend.BUKKIT by default
      */
-    public abstract boolean load();
+    public void setBackend(final ConfigBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * @return the backend reading and writing the YML
+     */
+    ConfigBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @return the binary cache file of this config
+     */
+    private File getCacheFile() {
+        return new File(configFile.getAbsoluteFile().getParentFile(), configFile.getName() + ".cache");
+    }
+
+    /**
+     * Parse the config file into cfg, if the values came from the binary cache
+     */
+    private void ensureYaml() {
+        if (!yamlPending) {
+            return;
+        }
+        synchronized (cfg) {
+            if (!yamlPending) {
+                return;
+            }
+            try {
+                parse(new String(Files.readAllBytes(configFile.toPath()), StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                e.printStackTrace();
+                yamlPending = false;
+            }
+        }
+    }
 
     /////////////
     //         //
@@ -206,6 +365,7 @@ public abstract class CoreConfig {
      * @return the YamlConfiguration of this Config instance
      */
     public YamlConfiguration getYamlConfiguration() {
+        ensureYaml();
         return cfg;
     }
 
@@ -227,8 +387,27 @@ public abstract class CoreConfig {
      * @return the boolean value of the path if it exists, def otherwise
      */
     private boolean getBoolean(final ConfigEntry cfg, final boolean def) {
+        return getBoolean(snapshot, cfg, def);
+    }
+
+    /**
+     * Retrieve a boolean from the value maps of a scope.
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the value
+     * @return the boolean value of the path in the scope if the path exists, false otherwise
+     */
+    public boolean getBoolean(final ConfigScope scope, final ConfigEntry cfg) {
+        return getBoolean(scope.resolve(snapshot), cfg, (Boolean) cfg.getValue());
+    }
+
+    private boolean getBoolean(final ConfigSnapshot current, final ConfigEntry cfg, final boolean def) {
+        final int slot = current.getSlot(cfg);
+        if (slot >= 0) {
+            return (current.content[slot] & ConfigSnapshot.SLOT_BOOLEAN) == 0 ? def : current.booleanSlots[slot];
+        }
         final String path = cfg.getNode();
-        final Boolean result = booleans.get(path);
+        final Boolean result = getValues(current, path).booleans.get(path);
         return result == null ? def : result;
     }
 
@@ -250,8 +429,27 @@ public abstract class CoreConfig {
      * @return the int value of the path if it exists, def otherwise
      */
     public int getInt(final ConfigEntry cfg, final int def) {
+        return getInt(snapshot, cfg, def);
+    }
+
+    /**
+     * Retrieve an int from the value maps of a scope.
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the value
+     * @return the int value of the path in the scope if the path exists, the default value otherwise
+     */
+    public int getInt(final ConfigScope scope, final ConfigEntry cfg) {
+        return getInt(scope.resolve(snapshot), cfg, (Integer) cfg.getValue());
+    }
+
+    private int getInt(final ConfigSnapshot current, final ConfigEntry cfg, final int def) {
+        final int slot = current.getSlot(cfg);
+        if (slot >= 0) {
+            return (current.content[slot] & ConfigSnapshot.SLOT_INT) == 0 ? def : current.intSlots[slot];
+        }
         final String path = cfg.getNode();
-        final Integer result = ints.get(path);
+        final Integer result = getValues(current, path).ints.get(path);
         return result == null ? def : result;
     }
 
@@ -273,9 +471,33 @@ public abstract class CoreConfig {
      * @return the double value of the path if it exists, def otherwise
      */
     public double getDouble(final ConfigEntry cfg, final double def) {
+        return getDouble(snapshot, cfg, def);
+    }
+
+    /**
+     * Retrieve a double from the value maps of a scope.
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the value
+     * @return the double value of the path in the scope if the path exists, the default value otherwise
+     */
+    public double getDouble(final ConfigScope scope, final ConfigEntry cfg) {
+        return getDouble(scope.resolve(snapshot), cfg, (Double) cfg.getValue());
+    }
+
+    private double getDouble(final ConfigSnapshot current, final ConfigEntry cfg, final double def) {
+        final int slot = current.getSlot(cfg);
+        if (slot >= 0) {
+            return (current.content[slot] & ConfigSnapshot.SLOT_DOUBLE) == 0 ? def : current.doubleSlots[slot];
+        }
         final String path = cfg.getNode();
-        final Double result = doubles.get(path);
-        return result == null ? def : result;
+        final ConfigSnapshot values = getValues(current, path);
+        final Double result = values.doubles.get(path);
+        if (result == null) {
+            final Integer integer = values.ints.get(path); // split sections keep whole numbers as they are
+            return integer == null ? def : integer;
+        }
+        return result;
     }
 
     /**
@@ -296,24 +518,414 @@ public abstract class CoreConfig {
      * @return the string value of the path if it exists, def otherwise
      */
     public String getString(final ConfigEntry cfg, final String def) {
+        return getString(snapshot, cfg, def);
+    }
+
+    /**
+     * Retrieve a string from the value maps of a scope.
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the value
+     * @return the string value of the path in the scope if the path exists, the default value otherwise
+     */
+    public String getString(final ConfigScope scope, final ConfigEntry cfg) {
+        return getString(scope.resolve(snapshot), cfg, (String) cfg.getValue());
+    }
+
+    private String getString(final ConfigSnapshot current, final ConfigEntry cfg, final String def) {
+        final int slot = current.getSlot(cfg);
+        if (slot >= 0) {
+            return (current.content[slot] & ConfigSnapshot.SLOT_STRING) == 0 ? def : current.stringSlots[slot];
+        }
         final String path = cfg.getNode();
-        final String result = strings.get(path);
+        final String result = getValues(current, path).strings.get(path);
         return result == null ? def : result;
     }
 
+    /**
+     * Retrieve a compiled expression from the value maps.
+     *
+     * @param cfg the node of the value
+     * @return the expression of the path if it exists and is valid, the compiled default otherwise - 0 if that is invalid
+     */
+    public ConfigExpression getExpression(final ConfigEntry cfg) {
+        return getExpression(snapshot, cfg);
+    }
+
+    /**
+     * Retrieve a compiled expression from the value maps of a scope.
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the value
+     * @return the expression of the path in the scope if it exists and is valid, the compiled default otherwise - 0 if that is invalid
+     */
+    public ConfigExpression getExpression(final ConfigScope scope, final ConfigEntry cfg) {
+        return getExpression(scope.resolve(snapshot), cfg);
+    }
+
+    private ConfigExpression getExpression(final ConfigSnapshot current, final ConfigEntry cfg) {
+        final int slot = current.getSlot(cfg);
+        final ConfigExpression result = slot >= 0 ? current.expressionSlots[slot] : getValues(current, cfg.getNode()).getValues().expressions.get(cfg.getNode());
+        if (result != null) {
+            return result;
+        }
+        return defaultExpressions.computeIfAbsent(cfg, this::compileDefault); // only entries missing in getAllNodes()
+    }
+
+    /**
+     * Check whether a SET entry holds a value. Unlike getStringList().contains(), this is a hash lookup.
+     *
+     * @param cfg   the node of the set
+     * @param value the value to look for
+     * @return whether the set of the path, or the default set if the path does not exist, holds the value
+     */
+    public boolean contains(final ConfigEntry cfg, final String value) {
+        return getSet(snapshot, cfg).contains(value);
+    }
+
+    /**
+     * Check whether a SET entry holds a value, ignoring case
+     *
+     * @param cfg   the node of the set
+     * @param value the value to look for
+     * @return whether the set of the path, or the default set if the path does not exist, holds the value
+     */
+    public boolean containsIgnoreCase(final ConfigEntry cfg, final String value) {
+        return getSet(snapshot, cfg).containsIgnoreCase(value);
+    }
+
+    /**
+     * Check whether a SET entry holds a value within a scope
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the set
+     * @param value the value to look for
+     * @return whether the set of the path in the scope holds the value
+     */
+    public boolean contains(final ConfigScope scope, final ConfigEntry cfg, final String value) {
+        return getSet(scope.resolve(snapshot), cfg).contains(value);
+    }
+
+    /**
+     * Check whether a SET entry holds a value within a scope, ignoring case
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the set
+     * @param value the value to look for
+     * @return whether the set of the path in the scope holds the value
+     */
+    public boolean containsIgnoreCase(final ConfigScope scope, final ConfigEntry cfg, final String value) {
+        return getSet(scope.resolve(snapshot), cfg).containsIgnoreCase(value);
+    }
+
+    private ConfigSet getSet(final ConfigSnapshot current, final ConfigEntry cfg) {
+        final int slot = current.getSlot(cfg);
+        final ConfigSet result = slot >= 0 ? current.setSlots[slot] : getValues(current, cfg.getNode()).getValues().sets.get(cfg.getNode());
+        if (result != null) {
+            return result;
+        }
+        return defaultSets.computeIfAbsent(cfg, entry -> new ConfigSet(entry.getValue() instanceof List ? toStringList((List<?>) entry.getValue()) : Collections.<String>emptyList()));
+    }
+
+    /**
+     * Retrieve the constant of an ENUM or MATERIAL entry, resolved when the config loaded
+     *
+     * @param cfg  the node of the value
+     * @param type the enum class of the entry
+     * @param <E>  the enum type
+     * @return the constant, the first one in config order if the entry holds several, null if there is none
+     */
+    public <E extends Enum<E>> E getEnum(final ConfigEntry cfg, final Class<E> type) {
+        return type.cast(getEnums(snapshot, cfg, type).first);
+    }
+
+    /**
+     * Retrieve the constant of an ENUM or MATERIAL entry within a scope
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the value
+     * @param type  the enum class of the entry
+     * @param <E>   the enum type
+     * @return the constant, the first one in config order if the entry holds several, null if there is none
+     */
+    public <E extends Enum<E>> E getEnum(final ConfigScope scope, final ConfigEntry cfg, final Class<E> type) {
+        return type.cast(getEnums(scope.resolve(snapshot), cfg, type).first);
+    }
+
+    /**
+     * Retrieve the material of a MATERIAL entry
+     *
+     * @param cfg the node of the value
+     * @return the material, null if there is none
+     */
+    public Material getMaterial(final ConfigEntry cfg) {
+        return getEnum(cfg, Material.class);
+    }
+
+    /**
+     * Retrieve the constants of an ENUM or MATERIAL entry holding a list of names
+     *
+     * @param cfg  the node of the value
+     * @param type the enum class of the entry
+     * @param <E>  the enum type
+     * @return an unmodifiable EnumSet view of the constants
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Enum<E>> Set<E> getEnumSet(final ConfigEntry cfg, final Class<E> type) {
+        return (Set<E>) getEnums(snapshot, cfg, type).view;
+    }
+
+    /**
+     * Retrieve the values of an ENUM or MATERIAL entry holding a section keyed by names
+     *
+     * @param cfg  the node of the value
+     * @param type the enum class of the entry
+     * @param <E>  the enum type
+     * @return an unmodifiable EnumMap view of the values, nested sections are Maps
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Enum<E>> Map<E, Object> getEnumMap(final ConfigEntry cfg, final Class<E> type) {
+        return (Map<E, Object>) getEnums(snapshot, cfg, type).map;
+    }
+
+    /**
+     * Check whether an ENUM or MATERIAL entry holds a constant - a bit check, meant for event handlers
+     *
+     * @param cfg   the node of the value
+     * @param value the constant to look for
+     * @return whether the entry holds the constant
+     */
+    public boolean contains(final ConfigEntry cfg, final Enum<?> value) {
+        return value != null && getEnums(snapshot, cfg, value.getDeclaringClass()).set.contains(value);
+    }
+
+    /**
+     * Check whether an ENUM or MATERIAL entry holds a constant within a scope
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the value
+     * @param value the constant to look for
+     * @return whether the entry holds the constant
+     */
+    public boolean contains(final ConfigScope scope, final ConfigEntry cfg, final Enum<?> value) {
+        return value != null && getEnums(scope.resolve(snapshot), cfg, value.getDeclaringClass()).set.contains(value);
+    }
+
+    private ConfigEnums getEnums(final ConfigSnapshot current, final ConfigEntry cfg, final Class<?> type) {
+        final int slot = current.getSlot(cfg);
+        ConfigEnums result = slot >= 0 ? current.enumSlots[slot] : getValues(current, cfg.getNode()).getValues().enums.get(cfg.getNode());
+        if (result == null) {
+            result = defaultEnums.get(cfg);
+        }
+        if (result == null || result.type != type) {
+            throw new IllegalArgumentException(cfg.getNode() + " holds no " + type.getSimpleName() + " values");
+        }
+        return result;
+    }
+
+    /**
+     * Get the values that hold a node without a slot - the snapshot, or the shard the node belongs to
+     *
+     * @param current the current snapshot
+     * @param node    the full config node path
+     * @return the snapshot to look up the node in
+     */
+    private ConfigSnapshot getValues(final ConfigSnapshot current, final String node) {
+        if (shards.isEmpty()) {
+            return current;
+        }
+        ConfigShards section = shardIndex.get(node);
+        if (section == null) {
+            for (final ConfigShards shard : shards) {
+                if (shard.contains(node)) {
+                    section = shard;
+                    break;
+                }
+            }
+            if (section == null) {
+                return current; // misses are not cached, so the index can not fill up with them
+            }
+            shardIndex.put(node, section);
+        }
+        return section.get(node);
+    }
+
+    /**
+     * Split a section into one file per child, each only read when one of its nodes is accessed.
+     * The node "section.child.value" is then read from "folder/child.yml" as "value".
+     * Nodes of a split section are resolved via the getters of ConfigEntries without slot.
+     * The first access reads the file on the calling thread - use preloadShard() to read it ahead,
+     * e.g. when a player joins.
+     *
+     * @param section   the section to split
+     * @param folder    the folder holding the child files
+     * @param maxLoaded how many children to keep in memory, the least recently used ones are dropped
+     */
+    public void registerShards(final String section, final File folder, final int maxLoaded) {
+        shards.add(new ConfigShards(this, section, folder, maxLoaded));
+        shardIndex.clear();
+    }
+
+    /**
+     * Read the file of a child of a split section on a background thread, unless it is loaded already
+     *
+     * @param section the section registered via registerShards()
+     * @param child   the child, whose file is "folder/child.yml"
+     * @return a future that completes once the child is loaded
+     */
+    public CompletableFuture<Void> preloadShard(final String section, final String child) {
+        for (final ConfigShards shard : shards) {
+            if (shard.contains(section + '.' + child)) {
+                return CompletableFuture.runAsync(() -> shard.get(section + '.' + child));
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Read a file of a split section, checking the values like the ones of the config file
+     *
+     * @param file   the file of the child
+     * @param prefix the path of the child, ending with a dot
+     * @return the values, empty if there is no file
+     */
+    ConfigSnapshot.Values loadShard(final File file, final String prefix) {
+        final ConfigSnapshot.Values values = new ConfigSnapshot.Values();
+        if (!file.exists()) {
+            return values;
+        }
+        final YamlConfiguration config = new YamlConfiguration();
+        try {
+            backend.load(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), config, new HashMap<>());
+        } catch (Exception e) {
+            plugin.getLogger().severe("Could not load " + file.getName() + ": " + e.getMessage());
+            return values;
+        }
+        for (final String key : config.getKeys(true)) {
+            final String node = prefix + key;
+            final Object object = config.get(key);
+            final ConfigEntry entry = getByNode(node);
+            if (entry != null) {
+                put(values, file.getName(), node, object, entry);
+            } else if (object instanceof Boolean) {
+                values.booleans.put(node, (Boolean) object);
+            } else if (object instanceof Integer) {
+                values.ints.put(node, (Integer) object);
+            } else if (object instanceof Double) {
+                values.doubles.put(node, (Double) object);
+            } else if (object instanceof String) {
+                values.strings.put(node, (String) object);
+            } else if (object instanceof List) {
+                values.lists.put(node, toStringList((List<?>) object));
+            } else if (object instanceof ConfigurationSection) {
+                @SuppressWarnings("unchecked")
+                final Map<String, Object> map = (Map<String, Object>) toImmutable(object);
+                values.maps.put(node, map);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Declare the section holding the values that differ per scope. The node "some.value" of the
+     * scope "world" is then read from "section.world.some.value", the scope "world/region" falls back
+     * to the values of "world", which fall back to the global values. Call before loading the config.
+     *
+     * @param section the section holding one child per scope
+     */
+    public void setOverrideSection(final String section) {
+        overrideSection = section;
+    }
+
+    /**
+     * Get a scope to read overridden values with - keep the instance rather than looking it up every time
+     *
+     * @param name the scope name, for example a world name
+     * @return the scope
+     */
+    public ConfigScope getScope(final String name) {
+        return scopes.computeIfAbsent(name, ConfigScope::new);
+    }
+
     /**
      * Retrieve a List from the value maps.
      *
      * @param cfg the node of the value
      * @param def a default value to return if the value was not in the map
-     * @return the List value of the path if it exists, def otherwise
+     * @return the unmodifiable List value of the path if it exists, def otherwise - a modifiable copy if the
+     * value was changed by setValue() since the last reload
      */
     public List<String> getStringList(final ConfigEntry cfg, final List<String> def) {
-        if (this.cfg.get(cfg.getNode()) == null) {
-            return def == null ? new LinkedList<>() : def;
+        if (!changedNodes.isEmpty() && changedNodes.contains(cfg.getNode())) {
+            synchronized (this.cfg) {
+                final Object value = this.cfg.get(cfg.getNode());
+                if (value instanceof List) {
+                    return new ArrayList<>(this.cfg.getStringList(cfg.getNode()));
+                }
+                return def == null ? new ArrayList<>() : def;
+            }
         }
+        return getStringList(snapshot, cfg, def);
+    }
 
-        return this.cfg.getStringList(cfg.getNode());
+    /**
+     * Retrieve a List from the value maps of a scope.
+     *
+     * @param scope the scope overriding the global value
+     * @param cfg   the node of the value
+     * @param def   a default value to return if the value was not in the map
+     * @return the unmodifiable List value of the path in the scope if it exists, def otherwise
+     */
+    public List<String> getStringList(final ConfigScope scope, final ConfigEntry cfg, final List<String> def) {
+        return getStringList(scope.resolve(snapshot), cfg, def);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> getStringList(final ConfigSnapshot current, final ConfigEntry cfg, final List<String> def) {
+        final int slot = current.getSlot(cfg);
+        final List<String> result = slot >= 0 ? (List<String>) current.listSlots[slot] : getValues(current, cfg.getNode()).lists.get(cfg.getNode());
+        if (result == null) {
+            return def == null ? Collections.emptyList() : def;
+        }
+        return result;
+    }
+
+    /**
+     * Retrieve a Map from the value maps. Nested sections are Maps, nested lists are Lists.
+     *
+     * @param cfg the node of the value
+     * @return the unmodifiable Map value of the path if it exists, an empty Map otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getMap(final ConfigEntry cfg) {
+        final ConfigSnapshot current = snapshot;
+        final int slot = current.getSlot(cfg);
+        final Map<String, Object> result = slot >= 0 ? (Map<String, Object>) current.mapSlots[slot] : getValues(current, cfg.getNode()).maps.get(cfg.getNode());
+        return result == null ? Collections.emptyMap() : result;
+    }
+
+    /**
+     * Turn a config value into an unmodifiable copy
+     *
+     * @param value the value to copy
+     * @return the value, with sections and lists replaced by unmodifiable collections
+     */
+    static Object toImmutable(final Object value) {
+        if (value instanceof ConfigurationSection) {
+            final Map<String, Object> result = new LinkedHashMap<>();
+            for (final Map.Entry<String, Object> entry : ((ConfigurationSection) value).getValues(false).entrySet()) {
+                result.put(entry.getKey(), toImmutable(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(result);
+        }
+        if (value instanceof List) {
+            final List<Object> result = new ArrayList<>();
+            for (final Object item : (List<?>) value) {
+                result.add(toImmutable(item));
+            }
+            return Collections.unmodifiableList(result);
+        }
+        return value;
     }
 
     /**
@@ -323,94 +935,589 @@ public abstract class CoreConfig {
      * @param value the value to set
      */
     public void setValue(ConfigEntry entry, Object value) {
-        cfg.set(entry.getNode(), value);
+        ensureYaml();
+        synchronized (cfg) {
+            cfg.set(entry.getNode(), value);
+        }
+        changedNodes.add(entry.getNode());
     }
 
     /**
-     * Check for invalid materials
+     * Start a batch of changes that are validated, then written and reloaded at once
+     *
+     * @return the new transaction
+     */
+    public ConfigTransaction begin() {
+        return new ConfigTransaction(this);
+    }
+
+    /**
+     * Apply the changes of a transaction, write the file once and reload the maps once.
+     * If writing fails, the previous values are restored.
+     *
+     * @param changes the validated values by entry
+     * @throws IOException if writing failed
+     */
+    void commit(final Map<ConfigEntry, Object> changes) throws IOException {
+        ensureYaml();
+        final Map<String, Object> previous = new LinkedHashMap<>();
+        synchronized (cfg) {
+            for (final Map.Entry<ConfigEntry, Object> change : changes.entrySet()) {
+                final String node = change.getKey().getNode();
+                previous.put(node, toImmutable(cfg.get(node)));
+                apply(node, change.getValue());
+            }
+        }
+        try {
+            writeConfig();
+        } catch (IOException | RuntimeException e) {
+            synchronized (cfg) {
+                for (final Map.Entry<String, Object> change : previous.entrySet()) {
+                    apply(change.getKey(), change.getValue());
+                }
+            }
+            throw e;
+        }
+        loadValues();
+    }
+
+    /**
+     * Set a node in cfg, turning Maps into sections - call while holding the cfg lock
+     */
+    private void apply(final String node, final Object value) {
+        if (value instanceof Map) {
+            cfg.createSection(node, (Map<?, ?>) value);
+        } else {
+            cfg.set(node, value);
+        }
+    }
+
+    /**
+     * Check for invalid materials - override when keeping material nodes outside of ConfigEntries,
+     * MATERIAL entries are resolved and checked on their own
      *
      * @param node the full node ending in the material name
      * @return whether the material is valid or legacy
      */
-    protected abstract boolean checkMaterials(String node);
+    protected boolean checkMaterials(String node) {
+        return false;
+    }
 
     /**
-     * Fill the materials map
+     * Fill the materials map - override when keeping material nodes outside of ConfigEntries
      */
-    protected abstract void loadMaterials();
+    protected void loadMaterials() {
+    }
 
 
     /**
      * Iterates through all keys in the config file, and populates the value Maps.
      * Boolean values are stored in the booleans Map, Strings in the strings Map, etc.
+     * The maps are collected into a fresh snapshot that replaces the current one at once,
+     * so readers on other threads never see a half updated state.
      */
     public void reloadMaps() {
-        root: for (final String s : cfg.getKeys(true)) {
-            final Object object = cfg.get(s);
+        loadValues();
+        appendComments();
+    }
 
-            ConfigEntry node = getByNode(s);
+    /**
+     * Build and publish a fresh snapshot from cfg, without writing the file
+     */
+    private void loadValues() {
+        ensureYaml();
+        synchronized (reported) {
+            reported.clear();
+            problems.clear();
+        }
+        final ConfigSnapshot.Values values = new ConfigSnapshot.Values();
+        final Map<String, ConfigSnapshot.Values> overrides = new HashMap<>();
 
-            if (object instanceof Boolean) {
-                if (node != null && node.getType() == ConfigEntry.Type.BOOLEAN) {
-                    booleans.put(s, (Boolean) object);
-                } else if (node != null) {
-                    plugin.getLogger().severe(configFile.getName() + ": " + s + " has unexpected boolean content, " + node.getType() + " expected - please fix!");
-                }
-            } else if (object instanceof Integer) {
-                if (node != null && node.getType() == ConfigEntry.Type.INT) {
-                    ints.put(s, (Integer) object);
-                } else if (node != null && node.getType() == ConfigEntry.Type.DOUBLE) {
-                    double value = (Integer) object;
-                    plugin.getLogger().warning(configFile.getName() + ": " + s + " expects double, integer given!");
-                    doubles.put(s, value);
-                } else if (node != null) {
-                    plugin.getLogger().severe(configFile.getName() + ": " + s + " has unexpected integer content, " + node.getType() + " expected - please fix!");
-                }
-            } else if (object instanceof Double) {
-                if (node != null && node.getType() == ConfigEntry.Type.DOUBLE) {
-                    doubles.put(s, (Double) object);
-                } else if (node != null && node.getType() == ConfigEntry.Type.INT) {
-                    double value = (Double) object;
-                    plugin.getLogger().warning(configFile.getName() + ": " + s + " expects integer, double given. Trying to round!");
-                    ints.put(s, (int) value);
-                } else if (node != null) {
-                    plugin.getLogger().severe(configFile.getName() + ": " + s + " has unexpected double content, " + node.getType() + " expected - please fix!");
+        final Set<String> empty = new HashSet<>();
+        if (emptyNodes != null) {
+            empty.addAll(Arrays.asList(emptyNodes));
+        }
+
+        final String overridePrefix = overrideSection == null ? null : overrideSection + '.';
+
+        for (final String s : cfg.getKeys(true)) {
+            final Object object = cfg.get(s);
+
+            if (overridePrefix != null && s.startsWith(overridePrefix)) {
+                final int end = s.indexOf('.', overridePrefix.length());
+                if (end < 0 || object instanceof ConfigurationSection && getByNode(s.substring(end + 1)) == null) {
+                    continue; // the scope itself, or a section leading to an overridden node
                 }
-            } else if (object instanceof String) {
-                strings.put(s, (String) object);
-                if (node != null && node.getType()!= ConfigEntry.Type.STRING) {
-                    plugin.getLogger().severe(configFile.getName() + ": " + s + " has unexpected string content, " + node.getType() + " expected - please fix!");
+                final String path = s.substring(end + 1);
+                final ConfigEntry node = getByNode(path);
+                if (node == null) {
+                    log(Level.WARNING, "No valid node: " + s);
+                    continue;
                 }
+                final String scope = s.substring(overridePrefix.length(), end);
+                put(overrides.computeIfAbsent(scope, key -> new ConfigSnapshot.Values()), configFile.getName(), path, object, node);
+                continue;
             }
 
+            ConfigEntry node = getByNode(s);
+
+            put(values, configFile.getName(), s, object, node);
+
             if (node == null) {
 
-                for (String test : emptyNodes) {
-                    if (s.equals(test)) {
-                        continue root;
-                    }
+                if (empty.contains(s) || s.equals(overrideSection)) {
+                    continue;
                 }
 
                 if (checkMaterials(s)) {
                     continue;
                 }
 
-                plugin.getLogger().warning("No valid node: " + s);
+                log(Level.WARNING, "No valid node: " + s);
             }
         }
+        compileDefaults();
+        publish(new ConfigSnapshot(getAllNodes(), values, overrides));
+        for (final ConfigShards section : shards) {
+            section.clear();
+        }
         loadMaterials();
-        appendComments();
+    }
+
+    /**
+     * Report a problem with a node, once per load
+     *
+     * @param node    the full config node path
+     * @param problem what is wrong
+     */
+    private void report(final String node, final String problem) {
+        synchronized (reported) {
+            if (!reported.add(node + ':' + problem)) {
+                return;
+            }
+        }
+        log(Level.WARNING, configFile.getName() + ": " + node + " has " + problem + " - please fix!");
+    }
+
+    /**
+     * Log a problem with the config content, remembering it to repeat it when loading from the binary cache
+     *
+     * @param level   the log level
+     * @param message the message
+     */
+    private void log(final Level level, final String message) {
+        synchronized (reported) {
+            problems.add(new AbstractMap.SimpleImmutableEntry<>(level, message));
+        }
+        plugin.getLogger().log(level, message);
+    }
+
+    /**
+     * Turn a config list into an unmodifiable list of its simple items
+     */
+    private static List<String> toStringList(final List<?> object) {
+        final List<String> list = new ArrayList<>();
+        for (final Object item : object) {
+            if (item instanceof String || item instanceof Number || item instanceof Boolean || item instanceof Character) {
+                list.add(String.valueOf(item));
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Compile the default values of all EXPRESSION and SET entries, so broken defaults show up on load
+     */
+    private void compileDefaults() {
+        for (final ConfigEntry entry : getAllNodes()) {
+            if ((entry.getType() == ConfigEntry.Type.ENUM || entry.getType() == ConfigEntry.Type.MATERIAL) && !defaultEnums.containsKey(entry)) {
+                final Class<? extends Enum<?>> type = ConfigEnums.getType(entry);
+                if (type == null) {
+                    plugin.getLogger().severe(entry.getNode() + " declares no enum type");
+                } else {
+                    defaultEnums.put(entry, ConfigEnums.resolve(type, entry.getValue(),
+                            problem -> plugin.getLogger().severe("Invalid default of " + entry.getNode() + ": " + problem)));
+                }
+            }
+            if (entry.getType() == ConfigEntry.Type.SET && !defaultSets.containsKey(entry)) {
+                defaultSets.put(entry, new ConfigSet(entry.getValue() instanceof List ? toStringList((List<?>) entry.getValue()) : Collections.<String>emptyList()));
+            }
+            if (entry.getType() != ConfigEntry.Type.EXPRESSION || defaultExpressions.containsKey(entry)) {
+                continue;
+            }
+            defaultExpressions.put(entry, compileDefault(entry));
+        }
+    }
+
+    /**
+     * Compile the default expression of an entry, falling back to a constant 0 if it is invalid
+     */
+    private ConfigExpression compileDefault(final ConfigEntry entry) {
+        try {
+            return ConfigExpression.compile(String.valueOf(entry.getValue()), entry.getVariables());
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().severe("Invalid default expression of " + entry.getNode() + ": " + e.getMessage() + " - using 0");
+            return ConfigExpression.compile("0", entry.getVariables());
+        }
+    }
+
+    /**
+     * Sort a config value into the value map matching its type, reporting values of unexpected type
+     *
+     * @param values   the values to add to
+     * @param fileName the file the value was read from, for reporting
+     * @param node     the full config node path
+     * @param object   the config value
+     * @param entry    the ConfigEntry of the node, null if there is none
+     */
+    private void put(final ConfigSnapshot.Values values, final String fileName, final String node, final Object object, final ConfigEntry entry) {
+        if (entry != null && entry.getType() == ConfigEntry.Type.EXPRESSION) {
+            if (object instanceof String || object instanceof Number) {
+                try {
+                    final ConfigExpression expression = ConfigExpression.compile(String.valueOf(object), entry.getVariables());
+                    values.strings.put(node, expression.getSource());
+                    values.expressions.put(node, expression);
+                } catch (IllegalArgumentException e) {
+                    log(Level.SEVERE, fileName + ": " + node + " has an invalid expression, " + e.getMessage() + " - please fix!");
+                }
+            } else if (!(object instanceof ConfigurationSection)) {
+                log(Level.SEVERE, fileName + ": " + node + " has unexpected content, EXPRESSION expected - please fix!");
+            }
+            return;
+        }
+        if (entry != null && (entry.getType() == ConfigEntry.Type.ENUM || entry.getType() == ConfigEntry.Type.MATERIAL)) {
+            final Object names;
+            if (object instanceof String) {
+                values.strings.put(node, (String) object);
+                names = object;
+            } else if (object instanceof List) {
+                final List<String> list = toStringList((List<?>) object);
+                values.lists.put(node, list);
+                names = list;
+            } else if (object instanceof ConfigurationSection) {
+                @SuppressWarnings("unchecked")
+                final Map<String, Object> map = (Map<String, Object>) toImmutable(object);
+                values.maps.put(node, map);
+                names = map;
+            } else {
+                log(Level.SEVERE, fileName + ": " + node + " has unexpected content, " + entry.getType() + " expected - please fix!");
+                return;
+            }
+            final Class<? extends Enum<?>> type = ConfigEnums.getType(entry);
+            if (type == null) {
+                plugin.getLogger().severe(entry.getNode() + " declares no enum type");
+                return;
+            }
+            values.enums.put(node, ConfigEnums.resolve(type, names, problem -> report(node, problem)));
+            return;
+        }
+        if (entry != null && entry.getType() == ConfigEntry.Type.SET) {
+            if (object instanceof List) {
+                final List<String> list = toStringList((List<?>) object);
+                values.lists.put(node, list);
+                values.sets.put(node, new ConfigSet(list));
+            } else if (!(object instanceof ConfigurationSection)) {
+                log(Level.SEVERE, fileName + ": " + node + " has unexpected content, SET expected - please fix!");
+            }
+            return;
+        }
+        if (object instanceof Boolean) {
+            if (entry != null && entry.getType() == ConfigEntry.Type.BOOLEAN) {
+                values.booleans.put(node, (Boolean) object);
+            } else if (entry != null) {
+                log(Level.SEVERE, fileName + ": " + node + " has unexpected boolean content, " + entry.getType() + " expected - please fix!");
+            }
+        } else if (object instanceof Integer) {
+            if (entry != null && entry.getType() == ConfigEntry.Type.INT) {
+                values.ints.put(node, (Integer) object);
+            } else if (entry != null && entry.getType() == ConfigEntry.Type.DOUBLE) {
+                double value = (Integer) object;
+                log(Level.WARNING, fileName + ": " + node + " expects double, integer given!");
+                values.doubles.put(node, value);
+            } else if (entry != null) {
+                log(Level.SEVERE, fileName + ": " + node + " has unexpected integer content, " + entry.getType() + " expected - please fix!");
+            }
+        } else if (object instanceof Double) {
+            if (entry != null && entry.getType() == ConfigEntry.Type.DOUBLE) {
+                values.doubles.put(node, (Double) object);
+            } else if (entry != null && entry.getType() == ConfigEntry.Type.INT) {
+                double value = (Double) object;
+                log(Level.WARNING, fileName + ": " + node + " expects integer, double given. Trying to round!");
+                values.ints.put(node, (int) value);
+            } else if (entry != null) {
+                log(Level.SEVERE, fileName + ": " + node + " has unexpected double content, " + entry.getType() + " expected - please fix!");
+            }
+        } else if (object instanceof String) {
+            values.strings.put(node, (String) object);
+            if (entry != null && entry.getType()!= ConfigEntry.Type.STRING) {
+                log(Level.SEVERE, fileName + ": " + node + " has unexpected string content, " + entry.getType() + " expected - please fix!");
+            }
+        } else if (object instanceof List) {
+            values.lists.put(node, toStringList((List<?>) object));
+            if (entry != null && entry.getType() != ConfigEntry.Type.LIST) {
+                log(Level.SEVERE, fileName + ": " + node + " has unexpected list content, " + entry.getType() + " expected - please fix!");
+            }
+        } else if (object instanceof ConfigurationSection) {
+            if (entry != null && entry.getType() == ConfigEntry.Type.MAP) {
+                @SuppressWarnings("unchecked")
+                final Map<String, Object> map = (Map<String, Object>) toImmutable(object);
+                values.maps.put(node, map);
+            }
+        }
+    }
+
+    /**
+     * Replace the current snapshot and inform the listeners about what changed
+     *
+     * @param next the new snapshot
+     */
+    private void publish(final ConfigSnapshot next) {
+        final ConfigSnapshot previous = snapshot;
+        snapshot = next;
+        changedNodes.clear();
+
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        final Set<String> nodes = previous.getNodes();
+        nodes.addAll(next.getNodes());
+
+        final List<ConfigChange> changes = new ArrayList<>();
+        for (final String node : nodes) {
+            final Object oldValue = previous.getValue(node);
+            final Object newValue = next.getValue(node);
+            if (!Objects.equals(oldValue, newValue)) {
+                changes.add(new ConfigChange(node, getByNode(node), oldValue, newValue));
+            }
+        }
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        for (final Subscription subscription : subscriptions) {
+            final List<ConfigChange> matches = new ArrayList<>();
+            for (final ConfigChange change : changes) {
+                if (subscription.matches(change)) {
+                    matches.add(change);
+                }
+            }
+            if (!matches.isEmpty()) {
+                final List<ConfigChange> batch = Collections.unmodifiableList(matches);
+                subscription.executor.execute(() -> subscription.listener.onChange(batch));
+            }
+        }
+    }
+
+    /**
+     * Get informed when the value of a ConfigEntry changes on reload
+     *
+     * @param entry    the entry to watch
+     * @param executor the executor to call the listener with, e.g. CorePlugin.getMainThreadExecutor()
+     * @param listener the listener to call
+     */
+    public void subscribe(final ConfigEntry entry, final Executor executor, final ConfigListener listener) {
+        subscriptions.add(new Subscription(entry, null, executor, listener));
+    }
+
+    /**
+     * Get informed when values below a config node change on reload
+     *
+     * @param prefix   the node to watch, including all nodes below it
+     * @param executor the executor to call the listener with, e.g. CorePlugin.getMainThreadExecutor()
+     * @param listener the listener to call
+     */
+    public void subscribe(final String prefix, final Executor executor, final ConfigListener listener) {
+        subscriptions.add(new Subscription(null, prefix, executor, listener));
+    }
+
+    /**
+     * Stop informing a listener
+     *
+     * @param listener the listener to remove from all subscriptions
+     */
+    public void unsubscribe(final ConfigListener listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
     }
 
     /**
      * Save the config to disk and append comments
+     *
+     * When write-behind is active, this only schedules the write, see {@link #saveAsync()}
      */
     public void save() {
-        try {
-            cfg.save(configFile);
+        if (writeDelay < 0) {
             appendComments();
-        } catch (IOException e) {
+            return;
+        }
+        saveAsync();
+    }
+
+    /**
+     * Schedule saving the config on a background thread. Saves that happen before the write
+     * starts are combined into that one write.
+     *
+     * @return a future that completes once the config has been written
+     */
+    public CompletableFuture<Void> saveAsync() {
+        synchronized (pendingLock) {
+            if (pendingWrite == null) {
+                final CompletableFuture<Void> future = new CompletableFuture<>();
+                pendingWrite = future;
+                if (writer == null) {
+                    writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        final Thread thread = new Thread(runnable, configName + " config writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                writer.schedule(() -> writePending(future), Math.max(writeDelay, 0), TimeUnit.MILLISECONDS);
+            }
+            return pendingWrite;
+        }
+    }
+
+    /**
+     * Write the pending changes now and wait until they are on disk
+     */
+    public void flush() {
+        final CompletableFuture<Void> future;
+        synchronized (pendingLock) {
+            future = pendingWrite;
+        }
+        if (future != null) {
+            writePending(future);
+        }
+        final CompletableFuture<Void> running;
+        synchronized (pendingLock) {
+            running = runningWrite;
+        }
+        if (running != null) {
+            try {
+                running.join(); // a write the background thread started already
+            } catch (CompletionException | CancellationException e) {
+                // reported by the writing thread
+            }
+        }
+    }
+
+    /**
+     * Activate write-behind: save() will only mark the config as changed, and the
+     * write happens on a background thread after the given delay.
+     *
+     * @param delay the time to wait for more changes in milliseconds, -1 to save immediately
+     */
+    public void setWriteBehind(final long delay) {
+        if (delay < 0) {
+            flush();
+        }
+        writeDelay = delay;
+    }
+
+    /**
+     * Write a pending change, if it has not been written yet
+     *
+     * @param future the future to complete when done
+     */
+    private void writePending(final CompletableFuture<Void> future) {
+        synchronized (pendingLock) {
+            if (pendingWrite != future) {
+                return; // someone else took care of this already
+            }
+            pendingWrite = null;
+            runningWrite = future;
+        }
+        try {
+            writeConfig();
+            future.complete(null);
+        } catch (Exception e) {
             e.printStackTrace();
+            future.completeExceptionally(e);
+        } finally {
+            synchronized (pendingLock) {
+                if (runningWrite == future) {
+                    runningWrite = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write everything that is pending and stop the background writer
+     */
+    void close() {
+        flush();
+        final ScheduledExecutorService executor;
+        synchronized (pendingLock) {
+            executor = writer;
+            writer = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning(configFile.getName() + ": config writer did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A read-only Map that always reflects one of the maps of the current snapshot
+     */
+    private class SnapshotView<V> extends AbstractMap<String, V> {
+        private final Function<ConfigSnapshot, Map<String, V>> getter;
+
+        SnapshotView(final Function<ConfigSnapshot, Map<String, V>> getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public V get(final Object key) {
+            return getter.apply(snapshot).get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return getter.apply(snapshot).containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return getter.apply(snapshot).size();
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return getter.apply(snapshot).entrySet();
+        }
+    }
+
+    /**
+     * A listener waiting for changes of a ConfigEntry or below a node
+     */
+    private static class Subscription {
+        private final ConfigEntry entry;
+        private final String prefix;
+        private final Executor executor;
+        private final ConfigListener listener;
+
+        Subscription(final ConfigEntry entry, final String prefix, final Executor executor, final ConfigListener listener) {
+            this.entry = entry;
+            this.prefix = prefix;
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        boolean matches(final ConfigChange change) {
+            if (entry != null) {
+                return entry.getNode().equals(change.getNode());
+            }
+            return change.getNode().equals(prefix) || change.getNode().startsWith(prefix + '.');
         }
     }
 }
@@ -0,0 +1,199 @@
+package net.slipcor.core;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the config and language files and reloads them when they are edited.
+ *
+ * Files are parsed on a background thread, only the result is applied on the main thread.
+ * Changes we wrote ourselves are recognized by their content and ignored.
+ * Use CorePlugin.watchFiles() to have it stopped when the plugin is disabled, or call shutdown() yourself.
+ */
+public class CoreFileWatcher extends Thread {
+    private final CorePlugin plugin;
+    private final long delay;
+
+    private CoreConfig config;
+    private CoreLanguage language;
+
+    private final WatchService watchService;
+    private final Set<Path> folders = new HashSet<>();
+    private final ScheduledExecutorService loader;
+    private final Map<Path, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Create a CoreFileWatcher instance
+     *
+     * @param plugin the CorePlugin instance
+     * @param delay  the time in milliseconds to wait for more changes before reloading a file
+     * @throws IOException if the file system can not be watched
+     */
+    public CoreFileWatcher(final CorePlugin plugin, final long delay) throws IOException {
+        super(plugin.getName() + " file watcher");
+        setDaemon(true);
+
+        this.plugin = plugin;
+        this.delay = delay;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, plugin.getName() + " file loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Watch the config file
+     *
+     * @param config the config to reload
+     * @throws IOException if the folder can not be watched
+     */
+    public void watch(final CoreConfig config) throws IOException {
+        this.config = config;
+        register(config.configFile.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Watch the language file in use, that is the file last loaded via CoreLanguage.load - edits to files used before are ignored
+     *
+     * @param language the language to reload
+     * @throws IOException if the folder can not be watched
+     */
+    public void watch(final CoreLanguage language) throws IOException {
+        this.language = language;
+        register(plugin.getDataFolder().getAbsoluteFile());
+    }
+
+    /**
+     * Stop watching, and stop the thread and the loader - nothing is reloaded afterwards
+     */
+    public void shutdown() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        loader.shutdownNow();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            final Path folder = (Path) key.watchable();
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    continue;
+                }
+                schedule(folder.resolve((Path) event.context()));
+            }
+            key.reset();
+        }
+    }
+
+    private synchronized void register(final File folder) throws IOException {
+        final Path path = folder.toPath();
+        if (folders.add(path)) {
+            path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    /**
+     * (Re)start the delay for a changed file, so a burst of changes leads to one reload
+     *
+     * @param path the changed file
+     */
+    private void schedule(final Path path) {
+        final File file = path.toFile();
+        if (!isConfig(file) && !isLanguage(file)) {
+            return; // temporary files and anything else we do not care about
+        }
+        final ScheduledFuture<?> previous = pending.put(path,
+                loader.schedule(() -> load(path), delay, TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Parse a changed file on the loader thread and hand it to the main thread
+     *
+     * @param path the changed file
+     */
+    private void load(final Path path) {
+        pending.remove(path);
+        final File file = path.toFile();
+        try {
+            if (!file.exists()) {
+                return;
+            }
+            final byte[] content = Files.readAllBytes(path);
+            final byte[] hash = CoreFiles.hash(content);
+
+            final boolean isConfig = isConfig(file);
+            if (!isConfig && !isLanguage(file)) {
+                return; // the plugin switched to another language file meanwhile
+            }
+            if (isConfig ? config.isKnownContent(hash) : language.isKnownContent(file, hash)) {
+                return; // we wrote this ourselves, or nothing changed
+            }
+
+            final YamlConfiguration loaded = new YamlConfiguration();
+            final Map<String, List<String>> comments = new HashMap<>();
+            final ConfigBackend backend = isConfig ? config.getBackend() : language.getBackend();
+            backend.load(new String(content, StandardCharsets.UTF_8), loaded, comments);
+            final CoreLanguage.Table messages = isConfig ? null : language.prepare(file, loaded, comments, hash);
+
+            if (!plugin.isEnabled()) {
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (isConfig) {
+                    config.reload(loaded, comments, hash);
+                } else if (isLanguage(file)) {
+                    language.publish(messages);
+                } else {
+                    return; // not the language file in use anymore
+                }
+                plugin.getLogger().info("Reloaded " + file.getName());
+            });
+        } catch (Exception e) {
+            plugin.getLogger().warning("Could not reload " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isConfig(final File file) {
+        return config != null && file.getAbsoluteFile().equals(config.configFile.getAbsoluteFile());
+    }
+
+    private boolean isLanguage(final File file) {
+        return language != null && language.isLoaded(file);
+    }
+}
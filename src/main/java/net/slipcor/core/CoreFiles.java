@@ -0,0 +1,73 @@
+package net.slipcor.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * File helpers shared by config and language handling
+ */
+final class CoreFiles {
+    private CoreFiles() {
+    }
+
+    /**
+     * Hash some content
+     *
+     * @param content the bytes to hash
+     * @return the SHA-256 hash of the content
+     */
+    static byte[] hash(final byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Hash the content of a file
+     *
+     * @param file the file to read
+     * @return the SHA-256 hash of the file content, null if the file does not exist
+     * @throws IOException if the file could not be read
+     */
+    static byte[] hash(final File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        return hash(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * @return whether two hashes are equal, false if one of them is missing
+     */
+    static boolean sameHash(final byte[] one, final byte[] two) {
+        return one != null && two != null && Arrays.equals(one, two);
+    }
+
+    /**
+     * Write a file by writing a temporary file next to it and moving it into place,
+     * so the file is never left empty or half written.
+     *
+     * @param file    the file to write
+     * @param content the new file content
+     * @throws IOException if writing or moving failed
+     */
+    static void writeAtomically(final File file, final byte[] content) throws IOException {
+        final Path target = file.toPath();
+        final Path temp = target.resolveSibling(file.getName() + ".tmp");
+        Files.write(temp, content);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -1,19 +1,91 @@
 package net.slipcor.core;
 
 import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLocaleChangeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class CoreLanguage {
     protected final CorePlugin plugin;
 
+    private volatile LoadedFile loadedFile; // the language file in use and its content hash
+    private ConfigBackend backend = ConfigBackend.BUKKIT;
+
+    private final Map<LanguageEntry, String> defaults = new ConcurrentHashMap<>(); // the values before the first load
+    private volatile Table table = new Table(new LanguageEntry[0], new String[0], new HashMap<>()); // the messages in use
+    private final Map<LanguageEntry, LanguageTemplate> untracked = new ConcurrentHashMap<>(); // entries missing in the table
+
+    // per player locales, see enableLocales()
+    private volatile File localeFolder;
+    private final Map<String, LanguageBundle> bundles = new ConcurrentHashMap<>(); // by locale
+    private final Set<String> loadingBundles = ConcurrentHashMap.newKeySet(); // locales being read asynchronously
+    private final AtomicInteger bundleGeneration = new AtomicInteger(); // increased whenever the bundles are cleared
+    private final Map<UUID, String> playerLocales = new ConcurrentHashMap<>(); // the locales of online players
+    private volatile Map<LanguageEntry, Integer> entryIndex; // entry positions in getAllNodes(), built on first use
+    private volatile Locale locale = Locale.ENGLISH; // formats typed placeholders of the main language file
+
     public CoreLanguage(CorePlugin plugin) {
         this.plugin = plugin;
     }
 
+    /**
+     * The language file in use, with the hash of its content as last read or written
+     */
+    private static final class LoadedFile {
+        private final File file;
+        private final byte[] hash;
+
+        private LoadedFile(final File file, final byte[] hash) {
+            this.file = file.getAbsoluteFile();
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * The messages of a loaded language file, published to the entries at once
+     */
+    static final class Table {
+        private final LanguageEntry[] entries;
+        private final String[] values;
+        private final Map<LanguageEntry, LanguageTemplate> templates;
+
+        private Table(final LanguageEntry[] entries, final String[] values, final Map<LanguageEntry, LanguageTemplate> templates) {
+            this.entries = entries;
+            this.values = values;
+            this.templates = templates;
+        }
+    }
+
+    /**
+     * A failed load, the message is what load() returns
+     */
+    private static final class LoadException extends Exception {
+        private LoadException(final String message) {
+            super(message);
+        }
+    }
+
     /**
      * Attempt to load a language file
      *
@@ -21,6 +93,46 @@ public abstract class CoreLanguage {
      * @return an error, null if everything went fine
      */
     public String load(String fileName) {
+        try {
+            publish(read(fileName));
+            return null;
+        } catch (final LoadException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Attempt to load a language file, reading it on a background thread and applying it on the main thread
+     *
+     * @param fileName the file name without .yml extension
+     * @return a future completing with an error, or with null once the messages are in use
+     */
+    public CompletableFuture<String> loadAsync(final String fileName) {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                final Table loaded = read(fileName);
+                plugin.getMainThreadExecutor().execute(() -> {
+                    publish(loaded);
+                    result.complete(null);
+                });
+            } catch (final LoadException e) {
+                result.complete(e.getMessage());
+            } catch (final RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Read a language file and prepare its messages, safe to call off the main thread
+     *
+     * @param fileName the file name without .yml extension
+     * @return the messages to publish
+     * @throws LoadException if the file could not be created, read or saved
+     */
+    private Table read(final String fileName) throws LoadException {
         plugin.getDataFolder().mkdir();
         final File configFile = new File(plugin.getDataFolder(), fileName + ".yml");
         if (!configFile.exists()) {
@@ -28,33 +140,421 @@ public abstract class CoreLanguage {
                 configFile.createNewFile();
             } catch (final Exception e) {
                 e.printStackTrace();
-                return "Error when creating language file:\n" + e.getMessage();
+                throw new LoadException("Error when creating language file:\n" + e.getMessage());
             }
         }
         final YamlConfiguration config = new YamlConfiguration();
+        final Map<String, List<String>> comments = new HashMap<>();
+        final byte[] content;
         try {
-            config.load(configFile);
+            content = Files.readAllBytes(configFile.toPath());
+            backend.load(new String(content, StandardCharsets.UTF_8), config, comments);
         } catch (final Exception e) {
             e.printStackTrace();
-            return "Error when loading language file:\n" + e.getMessage();
+            throw new LoadException("Error when loading language file:\n" + e.getMessage());
+        }
+
+        try {
+            return prepare(configFile, config, comments, CoreFiles.hash(content));
+        } catch (final IOException e) {
+            e.printStackTrace();
+            throw new LoadException("Error when saving language file:\n" + e.getMessage());
+        }
+    }
+
+    /**
+     * Prepare the messages of a loaded language file, saving it if nodes were missing.
+     * Safe to call off the main thread.
+     *
+     * @param configFile the file that has been loaded
+     * @param config     the loaded content
+     * @param comments   the comment lines found in the file
+     * @param hash       the hash of the loaded content
+     * @return the messages to publish
+     * @throws IOException if saving the missing nodes failed
+     */
+    Table prepare(final File configFile, final YamlConfiguration config,
+                  final Map<String, List<String>> comments, final byte[] hash) throws IOException {
+        loadedFile = new LoadedFile(configFile, hash); // a file used before is not watched anymore
+
+        final LanguageEntry[] entries = getAllNodes();
+        boolean missing = false;
+        for (final LanguageEntry m : entries) {
+            if (!config.isSet(m.getNode())) {
+                missing = true;
+            }
+            config.addDefault(m.getNode(), getDefault(m));
+        }
+
+        if (missing) {
+            config.options().copyDefaults(true);
+            final byte[] content = backend.save(config, null, comments, node -> null).getBytes(StandardCharsets.UTF_8);
+            CoreFiles.writeAtomically(configFile, content);
+            loadedFile = new LoadedFile(configFile, CoreFiles.hash(content));
+        }
+
+        final String[] values = new String[entries.length];
+        final Map<LanguageEntry, LanguageTemplate> compiled = new HashMap<>();
+        for (int i = 0; i < entries.length; i++) {
+            values[i] = config.getString(entries[i].getNode());
+            compiled.put(entries[i], compile(configFile.getName(), locale, entries[i], values[i]));
+        }
+        return new Table(entries, values, compiled);
+    }
+
+    /**
+     * Put prepared messages in use - call on the main thread
+     *
+     * @param loaded the messages to publish
+     */
+    void publish(final Table loaded) {
+        table = loaded;
+        for (int i = 0; i < loaded.entries.length; i++) {
+            loaded.entries[i].setValue(loaded.values[i]);
         }
+        untracked.clear();
+        clearBundles(); // locale files are read again when needed
+    }
+
+    /**
+     * Set the locale typed placeholders of the main language file are formatted for, like {0,number,#.##}.
+     * Takes effect with the next load, locale files use their own locale.
+     *
+     * @param locale the locale, English by default
+     */
+    public void setLocale(final Locale locale) {
+        this.locale = locale == null ? Locale.ENGLISH : locale;
+    }
 
-        for (final LanguageEntry m : getAllNodes()) {
-            config.addDefault(m.getNode(), m.toString());
+    /**
+     * Compile a message, reporting invalid placeholders and placeholders the default message does not have
+     *
+     * @param fileName the file the message was read from
+     * @param locale   the locale to format typed placeholders for
+     * @param entry    the entry
+     * @param value    the message
+     * @return the compiled message
+     */
+    private LanguageTemplate compile(final String fileName, final Locale locale, final LanguageEntry entry, final String value) {
+        final LanguageTemplate template = LanguageTemplate.compile(value, locale, problem ->
+                plugin.getLogger().warning(fileName + ": " + entry.getNode() + " has " + problem + " - please fix!"));
+        final int[] known = LanguageTemplate.compile(getDefault(entry)).getPlaceholders();
+        final int[] used = template.getPlaceholders();
+        for (int i = 0; i < used.length; i++) {
+            final int placeholder = used[i];
+            if (Arrays.stream(known).noneMatch(number -> number == placeholder)) {
+                plugin.getLogger().warning(fileName + ": " + entry.getNode() + " has unknown placeholder "
+                        + template.getPlaceholderText(i) + " - please fix!");
+            }
         }
+        return template;
+    }
+
+    /**
+     * @param entry the entry
+     * @return the value the entry had before the first language file was loaded
+     */
+    private String getDefault(final LanguageEntry entry) {
+        return defaults.computeIfAbsent(entry, LanguageEntry::toString);
+    }
+
+    /**
+     * Get the compiled message of an entry
+     *
+     * @param entry the entry
+     * @return the template, compiled when the language file was loaded - or on first use, if the entry is not loaded
+     */
+    public LanguageTemplate getTemplate(final LanguageEntry entry) {
+        final LanguageTemplate result = table.templates.get(entry);
+        if (result != null) {
+            return result;
+        }
+        final LanguageTemplate cached = untracked.get(entry);
+        final String value = entry.getValue();
+        if (cached != null && cached.getSource().equals(value)) {
+            return cached;
+        }
+        final LanguageTemplate compiled = LanguageTemplate.compile(value, locale, problem -> { });
+        untracked.put(entry, compiled);
+        return compiled;
+    }
+
+    /**
+     * Render the message of an entry - a faster LanguageEntry.parse() for messages sent often
+     *
+     * @param entry the entry
+     * @param args  the values of the placeholders %1%, %2%, ... - numbers and dates for typed placeholders
+     * @return the colorized message with replaced placeholders
+     */
+    public String render(final LanguageEntry entry, final Object... args) {
+        return getTemplate(entry).render(args);
+    }
+
+    /**
+     * Send every player messages in their own locale, read from "folder/de_de.yml", falling back to
+     * "folder/de.yml" and then to the main language file. A locale file is read asynchronously when the first player
+     * using it joins, using the main language until then, and dropped when the last one leaves. Call once
+     * the plugin is enabled.
+     *
+     * @param folder the folder inside the plugin folder holding the locale files
+     */
+    public void enableLocales(final String folder) {
+        final boolean registered = localeFolder != null;
+        localeFolder = new File(plugin.getDataFolder(), folder);
+        clearBundles();
+        if (registered) {
+            return;
+        }
+        plugin.getServer().getPluginManager().registerEvents(new LocaleListener(), plugin);
+        for (final Player player : plugin.getServer().getOnlinePlayers()) {
+            playerLocales.put(player.getUniqueId(), getLocale(player.getLocale()));
+        }
+    }
+
+    /**
+     * Get the compiled message of an entry in the locale of a player
+     *
+     * @param player the player
+     * @param entry  the entry
+     * @return the template of the player locale, the one of the main language if the locale does not have it
+     * or its file is still being read
+     */
+    public LanguageTemplate getTemplate(final Player player, final LanguageEntry entry) {
+        if (localeFolder == null) {
+            return getTemplate(entry);
+        }
+        String locale = playerLocales.get(player.getUniqueId());
+        if (locale == null) {
+            if (!player.isOnline()) {
+                return getTemplate(getLocale(player.getLocale()), entry);
+            }
+            // joined before the listener saw it, track it so the locale is released when the player quits
+            locale = playerLocales.computeIfAbsent(player.getUniqueId(), key -> getLocale(player.getLocale()));
+        }
+        final LanguageTemplate result = getBundle(locale).get(getIndex(entry));
+        return result == null ? getTemplate(entry) : result;
+    }
+
+    /**
+     * Get the compiled message of an entry in a locale
+     *
+     * @param locale the locale, like "de_de"
+     * @param entry  the entry
+     * @return the template of the locale, the one of the main language if the locale does not have it,
+     * its file is still being read or no online player uses the locale
+     */
+    public LanguageTemplate getTemplate(final String locale, final LanguageEntry entry) {
+        if (localeFolder == null) {
+            return getTemplate(entry);
+        }
+        final LanguageTemplate result = getBundle(getLocale(locale)).get(getIndex(entry));
+        return result == null ? getTemplate(entry) : result;
+    }
 
-        config.options().copyDefaults(true);
+    /**
+     * Render the message of an entry in the locale of a player
+     *
+     * @param player the player
+     * @param entry  the entry
+     * @param args   the values of the placeholders %1%, %2%, ... - numbers and dates for typed placeholders
+     * @return the colorized message with replaced placeholders
+     */
+    public String render(final Player player, final LanguageEntry entry, final Object... args) {
+        return getTemplate(player, entry).render(args);
+    }
+
+    /**
+     * @param locale a locale as reported by the client
+     * @return the locale as used for file names
+     */
+    private static String getLocale(final String locale) {
+        return locale == null ? "" : locale.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @param locale the normalized locale, like "de_de"
+     * @return the locale to format numbers and dates for
+     */
+    private static Locale toLocale(final String locale) {
+        final int split = locale.indexOf('_');
+        return split < 0 ? new Locale(locale) : new Locale(locale.substring(0, split), locale.substring(split + 1));
+    }
+
+    /**
+     * @param entry the entry
+     * @return the position of the entry in getAllNodes(), -1 if it is not there
+     */
+    private int getIndex(final LanguageEntry entry) {
+        Map<LanguageEntry, Integer> index = entryIndex;
+        if (index == null) {
+            index = new IdentityHashMap<>();
+            final LanguageEntry[] entries = getAllNodes();
+            for (int i = 0; i < entries.length; i++) {
+                index.put(entries[i], i);
+            }
+            entryIndex = index;
+        }
+        final Integer result = index.get(entry);
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * Get the messages of a locale, never reading from disk on the calling thread
+     *
+     * @param locale the normalized locale
+     * @return the messages of the locale, empty while its file is read asynchronously or if no online player uses it
+     */
+    private LanguageBundle getBundle(final String locale) {
+        final LanguageBundle result = bundles.get(locale);
+        if (result != null) {
+            return result;
+        }
+        if (playerLocales.containsValue(locale)) {
+            loadBundleAsync(locale); // only read for online players, so it is dropped when the last one leaves
+        }
+        return LanguageBundle.EMPTY;
+    }
+
+    /**
+     * Read the file of a locale asynchronously, unless it is already being read
+     *
+     * @param locale the normalized locale
+     */
+    private void loadBundleAsync(final String locale) {
+        if (!loadingBundles.add(locale)) {
+            return;
+        }
+        final int generation = bundleGeneration.get();
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                final LanguageBundle bundle = loadBundle(locale);
+                if (bundleGeneration.get() != generation) {
+                    return; // the files were reloaded meanwhile, the next miss reads them again
+                }
+                bundles.put(locale, bundle);
+                release(locale); // the last player using it might have left while we were reading
+            } finally {
+                loadingBundles.remove(locale);
+            }
+        });
+    }
+
+    /**
+     * Forget the messages of all locales, so they are read again when needed
+     */
+    private void clearBundles() {
+        bundleGeneration.incrementAndGet();
+        bundles.clear();
+    }
+
+    /**
+     * Read the file of a locale, or of its language if there is no file for the locale
+     *
+     * @param locale the normalized locale
+     * @return the compiled messages, empty if there is no file
+     */
+    private LanguageBundle loadBundle(final String locale) {
+        final File folder = localeFolder;
+        if (folder == null || locale.isEmpty()) {
+            return LanguageBundle.EMPTY;
+        }
+        File file = new File(folder, locale + ".yml");
+        if (!file.exists() && locale.indexOf('_') > 0) {
+            file = new File(folder, locale.substring(0, locale.indexOf('_')) + ".yml");
+        }
+        if (!file.exists()) {
+            return LanguageBundle.EMPTY;
+        }
+
+        final YamlConfiguration config = new YamlConfiguration();
         try {
-            config.save(configFile);
+            backend.load(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), config, new HashMap<>());
         } catch (final Exception e) {
-            e.printStackTrace();
-            return "Error when saving language file:\n" + e.getMessage();
+            plugin.getLogger().warning("Error when loading language file " + file.getName() + ": " + e.getMessage());
+            return LanguageBundle.EMPTY;
         }
 
-        for (final LanguageEntry m : getAllNodes()) {
-            m.setValue(config.getString(m.getNode()));
+        final LanguageEntry[] entries = getAllNodes();
+        final LanguageTemplate[] compiled = new LanguageTemplate[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            final String value = config.getString(entries[i].getNode());
+            if (value != null) {
+                compiled[i] = compile(file.getName(), toLocale(locale), entries[i], value);
+            }
         }
-        return null;
+        return new LanguageBundle(file.getName(), compiled);
+    }
+
+    /**
+     * Forget the messages of a locale if no online player uses it anymore
+     *
+     * @param locale the normalized locale
+     */
+    private void release(final String locale) {
+        if (locale != null && !playerLocales.containsValue(locale)) {
+            bundles.remove(locale);
+        }
+    }
+
+    /**
+     * Tracks the locales of online players, to load and drop the locale files
+     */
+    private final class LocaleListener implements Listener {
+        @EventHandler(priority = EventPriority.LOWEST)
+        public void onJoin(final PlayerJoinEvent event) {
+            final String locale = getLocale(event.getPlayer().getLocale());
+            playerLocales.put(event.getPlayer().getUniqueId(), locale);
+            getBundle(locale);
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onQuit(final PlayerQuitEvent event) {
+            release(playerLocales.remove(event.getPlayer().getUniqueId()));
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onLocaleChange(final PlayerLocaleChangeEvent event) {
+            final String locale = getLocale(event.getLocale());
+            release(playerLocales.put(event.getPlayer().getUniqueId(), locale));
+            getBundle(locale);
+        }
+    }
+
+    /**
+     * Choose how the YML is read and written
+     *
+     * @param backend the backend to use, ConfigBackend.BUKKIT by default
+     */
+    public void setBackend(final ConfigBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * @return the backend reading and writing the YML
+     */
+    ConfigBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @param file the file to check
+     * @return whether the file is the language file in use
+     */
+    boolean isLoaded(final File file) {
+        final LoadedFile loaded = loadedFile;
+        return loaded != null && loaded.file.equals(file.getAbsoluteFile());
+    }
+
+    /**
+     * Check whether some content is what we last wrote or read
+     *
+     * @param file the language file
+     * @param hash the hash of the content
+     * @return whether the language already reflects that content
+     */
+    boolean isKnownContent(final File file, final byte[] hash) {
+        final LoadedFile loaded = loadedFile;
+        return loaded != null && loaded.file.equals(file.getAbsoluteFile()) && CoreFiles.sameHash(hash, loaded.hash);
     }
 
     /**
@@ -62,24 +562,91 @@ public abstract class CoreLanguage {
      */
     protected abstract LanguageEntry[] getAllNodes();
 
-    private final static Pattern hexPattern = Pattern.compile("<#([A-Fa-f0-9]){6}>");
+    private static final String COLOR_CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRrXx";
+    private static final String HEX_DIGITS = "0123456789AaBbCcDdEeFf";
+    private static final int MAX_CACHED_LENGTH = 256; // longer messages are rarely repeated
+    static final boolean HEX_COLORS = supportsHexColors();
+    private static final CoreCache<String, String> colorized = new CoreCache<>(1024);
+
+    private static boolean supportsHexColors() {
+        try {
+            net.md_5.bungee.api.ChatColor.of("#FFFFFF");
+            return true;
+        } catch (NoSuchMethodError | NoClassDefFoundError e) {
+            return false; // we do not know this yet!
+        }
+    }
 
+    /**
+     * Translate <#RRGGBB> hex colors, <gradient:#RRGGBB:#RRGGBB>text</gradient> and <rainbow>text</rainbow>
+     * gradients and & color codes, remembering the results of recent messages
+     *
+     * @param message the message to colorize
+     * @return the colorized message
+     */
     public static String colorize(String message) {
-        if (message.contains("<#")) {
-            try {
-                Matcher matcher = hexPattern.matcher(message);
-                while (matcher.find()) {
-                    final net.md_5.bungee.api.ChatColor hexColor = net.md_5.bungee.api.ChatColor.of(matcher.group().substring(1, matcher.group().length() - 1));
-                    final String before = message.substring(0, matcher.start());
-                    final String after = message.substring(matcher.end());
-                    message = before + hexColor + after;
-                    matcher = hexPattern.matcher(message);
+        if (message.indexOf('&') < 0 && message.indexOf('<') < 0) {
+            return message;
+        }
+        if (message.length() > MAX_CACHED_LENGTH) {
+            return translateColors(message);
+        }
+        return colorized.get(message, CoreLanguage::translateColors);
+    }
+
+    /**
+     * Translate hex colors, gradients and color codes in one pass
+     *
+     * @param message the message to colorize
+     * @return the colorized message
+     */
+    private static String translateColors(final String message) {
+        final int length = message.length();
+        final StringBuilder result = new StringBuilder(length + 16);
+        LanguageGradient gradient;
+        int pos = 0;
+        while (pos < length) {
+            final char current = message.charAt(pos);
+            if (current == '&' && pos + 1 < length && COLOR_CODES.indexOf(message.charAt(pos + 1)) >= 0) {
+                result.append(ChatColor.COLOR_CHAR).append(Character.toLowerCase(message.charAt(pos + 1)));
+                pos += 2;
+            } else if (current == '<' && (gradient = LanguageGradient.find(message, pos)) != null) {
+                final int start = pos + gradient.getTag().length();
+                final int close = message.indexOf(gradient.getCloseTag(), start);
+                final int end = close < 0 ? length : close;
+                final String inner = translateColors(message.substring(start, end));
+                if (HEX_COLORS) {
+                    gradient.apply(result, inner);
+                } else {
+                    result.append(inner);
+                }
+                pos = close < 0 ? length : close + gradient.getCloseTag().length();
+            } else if (current == '<' && HEX_COLORS && isHexTag(message, pos)) {
+                result.append(ChatColor.COLOR_CHAR).append('x');
+                for (int digit = pos + 2; digit < pos + 8; digit++) {
+                    result.append(ChatColor.COLOR_CHAR).append(Character.toLowerCase(message.charAt(digit)));
                 }
-            } catch (NoSuchMethodError e) {
-                // we do not know this yet!
+                pos += 9;
+            } else {
+                result.append(current);
+                pos++;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return whether a <#RRGGBB> tag starts at a position
+     */
+    private static boolean isHexTag(final String message, final int pos) {
+        if (pos + 8 >= message.length() || message.charAt(pos + 1) != '#' || message.charAt(pos + 8) != '>') {
+            return false;
+        }
+        for (int digit = pos + 2; digit < pos + 8; digit++) {
+            if (HEX_DIGITS.indexOf(message.charAt(digit)) < 0) {
+                return false;
             }
-            return net.md_5.bungee.api.ChatColor.translateAlternateColorCodes('&', message);
         }
-        return ChatColor.translateAlternateColorCodes('&', message);
+        return true;
     }
 }
@@ -0,0 +1,173 @@
+package net.slipcor.core;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Messages queued from any thread and sent once per tick on the main thread.
+ *
+ * A message identical to the one a recipient got last within the current rate limit window is merged
+ * into it, and messages exceeding the rate limit of a recipient are dropped. The drain task only runs
+ * while messages are queued or a window is open.
+ */
+public final class CoreOutbox {
+    private final CorePlugin plugin;
+    private final Queue<Message> queue = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // rate limit, set from any thread
+    private volatile int limit = 5;
+    private volatile int window = 20;
+
+    // the current window, only touched on the main thread
+    private final Map<Object, Recipient> recipients = new HashMap<>();
+    private int ticks;
+
+    private BukkitTask task;
+
+    private static final class Message {
+        private final CommandSender recipient;
+        private final String text;
+
+        private Message(final CommandSender recipient, final String text) {
+            this.recipient = recipient;
+            this.text = text;
+        }
+    }
+
+    /**
+     * What a recipient got within the current window
+     */
+    private static final class Recipient {
+        private int count;
+        private String last;
+    }
+
+    CoreOutbox(final CorePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Queue a message, it is sent with prefix on the next tick - safe to call from any thread
+     *
+     * @param recipient the recipient
+     * @param message   the message
+     */
+    public void enqueue(final CommandSender recipient, final String message) {
+        if (message == null || "".equals(message)) {
+            return;
+        }
+        queue.add(new Message(recipient, message));
+        start();
+    }
+
+    /**
+     * Limit how many messages a recipient gets
+     *
+     * @param messages how many messages a recipient may get per window, 0 for no limit
+     * @param ticks    the window length in ticks
+     */
+    public void setRateLimit(final int messages, final int ticks) {
+        limit = messages;
+        window = Math.max(1, ticks);
+    }
+
+    /**
+     * @return how many messages have been sent
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * @return how many messages have been merged into an identical one sent before
+     */
+    public long getMerged() {
+        return merged.sum();
+    }
+
+    /**
+     * @return how many messages have been dropped, because of the rate limit or because the recipient left
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Start the drain task if it is not running
+     */
+    private synchronized void start() {
+        if (task == null && plugin.isEnabled()) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop the drain task if nothing is queued - a message queued meanwhile starts it again
+     */
+    private synchronized void stopIfIdle() {
+        if (task != null && queue.isEmpty()) {
+            task.cancel();
+            task = null;
+            ticks = 0;
+        }
+    }
+
+    /**
+     * Stop the drain task and send what is queued - call on the main thread
+     */
+    synchronized void close() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        drain();
+    }
+
+    /**
+     * Send all queued messages - runs on the main thread once per tick
+     */
+    private void drain() {
+        if (++ticks >= window) {
+            ticks = 0;
+            recipients.clear();
+        }
+
+        Message message;
+        while ((message = queue.poll()) != null) {
+            final CommandSender sender = message.recipient;
+            if (sender instanceof Player && !((Player) sender).isOnline()) {
+                dropped.increment();
+                continue;
+            }
+            final Recipient recipient = recipients.computeIfAbsent(
+                    sender instanceof Player ? ((Player) sender).getUniqueId() : sender, key -> new Recipient());
+            if (message.text.equals(recipient.last)) {
+                merged.increment();
+                continue;
+            }
+            if (limit > 0 && recipient.count >= limit) {
+                dropped.increment();
+                continue;
+            }
+            recipient.count++;
+            recipient.last = message.text;
+            plugin.sendPrefixed(sender, message.text);
+            sent.increment();
+        }
+
+        if (recipients.isEmpty()) {
+            stopIfIdle(); // no window open, nothing to count until the next message
+        }
+    }
+}
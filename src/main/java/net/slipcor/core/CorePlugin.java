@@ -1,17 +1,29 @@
 package net.slipcor.core;
 
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
 import java.util.logging.*;
 
 public abstract class CorePlugin extends JavaPlugin {
@@ -23,6 +35,12 @@ public abstract class CorePlugin extends JavaPlugin {
     final Set<Integer> debugFilterIDs   = new HashSet<>(); // class IDs to filter
     final Set<String>  debugFilterNames = new HashSet<>(); // player names to filter
 
+    private static final int MAX_CACHED_MESSAGE = 1024; // longer messages are converted without caching
+    private final CoreCache<String, BaseComponent[]> components = new CoreCache<>(512); // by message, without prefix
+    private volatile Prefix prefix = new Prefix("", new BaseComponent[0]);
+    private final CoreOutbox outbox = new CoreOutbox(this);
+    private CoreFileWatcher watcher;
+
     /**
      * Close the logger
      */
@@ -106,6 +124,21 @@ public abstract class CorePlugin extends JavaPlugin {
         }
     }
 
+    /**
+     * The message prefix, converted to chat components once
+     */
+    private static final class Prefix {
+        private final String text;
+        private final BaseComponent[] components;
+        private final String colors; // the formatting at the end of the prefix, which messages continue
+
+        private Prefix(final String text, final BaseComponent[] components) {
+            this.text = text;
+            this.components = components;
+            this.colors = ChatColor.getLastColors(text);
+        }
+    }
+
     /**
      * Send a message to a CommandSender, with configurable prefix
      *
@@ -118,15 +151,228 @@ public abstract class CorePlugin extends JavaPlugin {
         }
 
         if (sender instanceof Player) {
-            sender.sendMessage(getMessagePrefix() + message);
+            sender.spigot().sendMessage(getComponents(message));
             return;
         }
 
         this.getLogger().info(message);
     }
 
+    /**
+     * Get the chat components of a legacy colored message with prefix - the prefix and the message are
+     * converted once and then cached, the message by its text
+     *
+     * @param message the colorized message, without prefix
+     * @return the components of the prefix followed by the ones of the message - do not modify them, they are shared
+     */
+    BaseComponent[] getComponents(final String message) {
+        final Prefix current = getPrefix();
+        final BaseComponent[] text = message.length() > MAX_CACHED_MESSAGE
+                ? TextComponent.fromLegacyText(current.colors + message)
+                : components.get(message, key -> TextComponent.fromLegacyText(current.colors + key));
+        final BaseComponent[] result = Arrays.copyOf(current.components, current.components.length + text.length);
+        System.arraycopy(text, 0, result, current.components.length, text.length);
+        return result;
+    }
+
+    /**
+     * @return the converted message prefix, converted again if the prefix changed
+     */
+    private Prefix getPrefix() {
+        final String configured = getMessagePrefix();
+        final String text = configured == null ? "" : configured;
+        Prefix result = prefix;
+        if (!result.text.equals(text)) {
+            result = new Prefix(text, text.isEmpty() ? new BaseComponent[0] : TextComponent.fromLegacyText(text));
+            prefix = result;
+            components.clear(); // the cached messages continue the formatting of the old prefix
+        }
+        return result;
+    }
+
+    /**
+     * Queue a message to a CommandSender, sent with prefix on the next tick - safe to call from any thread.
+     * Repeated messages are merged and recipients are rate limited, see {@link #getOutbox()}.
+     *
+     * @param sender  the recipient
+     * @param message the message
+     */
+    public void sendQueued(final CommandSender sender, final String message) {
+        outbox.enqueue(sender, message);
+    }
+
+    /**
+     * @return the outbox of queued messages, to set the rate limit or check its counters
+     */
+    public CoreOutbox getOutbox() {
+        return outbox;
+    }
+
+    /**
+     * Send a message to all online players matching a filter, see {@link #broadcast(LanguageEntry, Collection, int, String...)}
+     *
+     * @param entry  the message
+     * @param filter which players receive the message
+     * @param args   the values of the placeholders
+     */
+    public void broadcast(final LanguageEntry entry, final Predicate<? super Player> filter, final String... args) {
+        final List<Player> recipients = new ArrayList<>();
+        for (final Player player : getServer().getOnlinePlayers()) {
+            if (filter.test(player)) {
+                recipients.add(player);
+            }
+        }
+        broadcast(entry, recipients, 0, args);
+    }
+
+    /**
+     * Send a message to all online players having a permission
+     *
+     * @param entry      the message
+     * @param permission the permission node recipients need
+     * @param args       the values of the placeholders
+     */
+    public void broadcast(final LanguageEntry entry, final String permission, final String... args) {
+        broadcast(entry, player -> player.hasPermission(permission), args);
+    }
+
+    /**
+     * Send a message to players, rendering it once per locale instead of once per player.
+     * Locales are only used if language() returns a CoreLanguage with locales enabled.
+     *
+     * @param entry      the message
+     * @param recipients the players to receive the message
+     * @param perTick    how many players to send to per tick, 0 to send to all right away
+     * @param args       the values of the placeholders
+     */
+    public void broadcast(final LanguageEntry entry, final Collection<? extends Player> recipients,
+                          final int perTick, final String... args) {
+        final List<Player> players = new ArrayList<>(recipients);
+        final Map<Object, BaseComponent[]> rendered = new IdentityHashMap<>(); // by template
+        if (perTick <= 0 || players.size() <= perTick) {
+            deliver(entry, players, 0, players.size(), rendered, args);
+            return;
+        }
+        new Runnable() {
+            private int sent;
+            private BukkitTask task;
+
+            @Override
+            public void run() {
+                final int end = Math.min(players.size(), sent + perTick);
+                deliver(entry, players, sent, end, rendered, args);
+                sent = end;
+                if (sent >= players.size()) {
+                    task.cancel();
+                }
+            }
+
+            private Runnable schedule() {
+                task = getServer().getScheduler().runTaskTimer(CorePlugin.this, this, 0L, 1L);
+                return this;
+            }
+        }.schedule();
+    }
+
+    /**
+     * Send a message to a part of the recipients, rendering each distinct template once
+     */
+    private void deliver(final LanguageEntry entry, final List<Player> players, final int start, final int end,
+                         final Map<Object, BaseComponent[]> rendered, final String... args) {
+        final CoreLanguage language = language();
+        for (int i = start; i < end; i++) {
+            final Player player = players.get(i);
+            if (!player.isOnline()) {
+                continue;
+            }
+            final Object key = language == null ? entry : language.getTemplate(player, entry);
+            BaseComponent[] message = rendered.get(key);
+            if (message == null) {
+                final String text = key instanceof LanguageTemplate ? ((LanguageTemplate) key).render(args) : entry.parse(args);
+                message = "".equals(text) ? new BaseComponent[0] : getComponents(text);
+                rendered.put(key, message);
+            }
+            if (message.length > 0) {
+                player.spigot().sendMessage(message);
+            }
+        }
+    }
+
+    /**
+     * @return how often a message was sent with chat components converted before
+     */
+    public long getComponentHits() {
+        return components.getHits();
+    }
+
+    /**
+     * @return how often the chat components of a message had to be converted
+     */
+    public long getComponentMisses() {
+        return components.getMisses();
+    }
+
+    /**
+     * Reload the config and language files when they are edited on disk. The watcher is stopped in onDisable().
+     *
+     * @param delay the time in milliseconds to wait for more changes before reloading a file
+     * @return the started watcher
+     * @throws IOException if the file system can not be watched
+     */
+    public CoreFileWatcher watchFiles(final long delay) throws IOException {
+        if (watcher != null) {
+            watcher.shutdown();
+        }
+        final CoreFileWatcher result = new CoreFileWatcher(this, delay);
+        if (config() != null) {
+            result.watch(config());
+        }
+        if (language() != null) {
+            result.watch(language());
+        }
+        result.start();
+        watcher = result;
+        return result;
+    }
+
+    /**
+     * Stop watching files, send queued messages and write pending config changes before the plugin goes away - overriding plugins need to call this!
+     */
+    @Override
+    public void onDisable() {
+        if (watcher != null) {
+            watcher.shutdown();
+            watcher = null;
+        }
+        outbox.close();
+        final CoreConfig config = config();
+        if (config != null) {
+            config.close();
+        }
+    }
+
+    /**
+     * @return an Executor running tasks on the main thread, right away if we are on it already
+     */
+    public Executor getMainThreadExecutor() {
+        return task -> {
+            if (getServer().isPrimaryThread()) {
+                task.run();
+            } else {
+                getServer().getScheduler().runTask(this, task);
+            }
+        };
+    }
+
     public abstract CoreConfig config();
 
+    /**
+     * @return the language of the plugin, null if broadcasts should use LanguageEntry.parse()
+     */
+    public CoreLanguage language() {
+        return null;
+    }
+
     protected abstract String getMessagePrefix();
 
     protected abstract String getDebugPrefix();
@@ -0,0 +1,37 @@
+package net.slipcor.core;
+
+/**
+ * The compiled messages of one locale, indexed like CoreLanguage.getAllNodes().
+ *
+ * Messages missing from the locale file are null and fall back to the main language.
+ */
+final class LanguageBundle {
+    static final LanguageBundle EMPTY = new LanguageBundle(null, new LanguageTemplate[0]);
+
+    private final String fileName;
+    private final LanguageTemplate[] templates;
+
+    /**
+     * @param fileName  the file the messages were read from, null if there is none
+     * @param templates the compiled messages by entry index
+     */
+    LanguageBundle(final String fileName, final LanguageTemplate[] templates) {
+        this.fileName = fileName;
+        this.templates = templates;
+    }
+
+    /**
+     * @return the file the messages were read from, null if there is none
+     */
+    String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @param index the entry index
+     * @return the compiled message, null if the locale does not have it
+     */
+    LanguageTemplate get(final int index) {
+        return index >= 0 && index < templates.length ? templates[index] : null;
+    }
+}
@@ -0,0 +1,217 @@
+package net.slipcor.core;
+
+import org.bukkit.ChatColor;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A color gradient from a &lt;gradient:#RRGGBB:#RRGGBB...&gt; or &lt;rainbow&gt; tag, closed by
+ * &lt;/gradient&gt; or &lt;/rainbow&gt; or the end of the message.
+ *
+ * The hex color codes of every text length up to 256 are computed once and kept in a table, so
+ * coloring a text copies codes instead of computing colors. Gradients are shared by tag.
+ */
+final class LanguageGradient {
+    private static final int MAX_CACHED_LENGTH = 256;
+    private static final int CODE_LENGTH = 14; // &x&r&r&g&g&b&b as color codes
+    private static final String FORMAT_CODES = "klmno";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final CoreCache<String, LanguageGradient> gradients = new CoreCache<>(64);
+
+    private final String tag;
+    private final String closeTag;
+    private final int[] stops; // the colors as RGB, null for a rainbow
+    private final AtomicReferenceArray<char[]> tables = new AtomicReferenceArray<>(MAX_CACHED_LENGTH + 1);
+
+    private LanguageGradient(final String tag, final String closeTag, final int[] stops) {
+        this.tag = tag;
+        this.closeTag = closeTag;
+        this.stops = stops;
+    }
+
+    /**
+     * Find the gradient tag starting at a position
+     *
+     * @param message the message
+     * @param pos     the position of a '&lt;'
+     * @return the gradient, null if there is no valid gradient tag at the position
+     */
+    static LanguageGradient find(final String message, final int pos) {
+        if (!message.startsWith("<gradient:", pos) && !message.startsWith("<rainbow>", pos)) {
+            return null;
+        }
+        final int end = message.indexOf('>', pos);
+        if (end < 0) {
+            return null;
+        }
+        final String tag = message.substring(pos, end + 1);
+        final LanguageGradient cached = gradients.get(tag);
+        if (cached != null) {
+            return cached;
+        }
+        final LanguageGradient result = parse(tag);
+        if (result != null) {
+            gradients.put(tag, result);
+        }
+        return result;
+    }
+
+    private static LanguageGradient parse(final String tag) {
+        if ("<rainbow>".equals(tag)) {
+            return new LanguageGradient(tag, "</rainbow>", null);
+        }
+        final String[] colors = tag.substring(10, tag.length() - 1).split(":");
+        if (colors.length < 2) {
+            return null;
+        }
+        final int[] stops = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            if (colors[i].length() != 7 || colors[i].charAt(0) != '#') {
+                return null;
+            }
+            try {
+                stops[i] = Integer.parseInt(colors[i].substring(1), 16);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return new LanguageGradient(tag, "</gradient>", stops);
+    }
+
+    /**
+     * @return the opening tag, like "&lt;rainbow&gt;"
+     */
+    String getTag() {
+        return tag;
+    }
+
+    /**
+     * @return the closing tag, like "&lt;/rainbow&gt;"
+     */
+    String getCloseTag() {
+        return closeTag;
+    }
+
+    /**
+     * Color every visible character of a colorized text, keeping its formatting codes and dropping
+     * its color codes
+     *
+     * @param result the builder to append to
+     * @param text   the colorized text
+     */
+    void apply(final StringBuilder result, final CharSequence text) {
+        final int length = text.length();
+        int visible = 0;
+        for (int pos = 0; pos < length; pos++) {
+            if (text.charAt(pos) == ChatColor.COLOR_CHAR && pos + 1 < length) {
+                pos++;
+            } else {
+                visible++;
+            }
+        }
+        if (visible == 0) {
+            return;
+        }
+        final char[] table = getTable(visible);
+        int formats = 0; // bit mask of the active formatting codes, as they are reset by colors
+        int index = 0;
+        for (int pos = 0; pos < length; pos++) {
+            final char current = text.charAt(pos);
+            if (current == ChatColor.COLOR_CHAR && pos + 1 < length) {
+                final char code = text.charAt(++pos);
+                final int format = FORMAT_CODES.indexOf(code);
+                if (format >= 0) {
+                    formats |= 1 << format;
+                } else if (code == 'r') {
+                    formats = 0;
+                }
+                continue;
+            }
+            result.append(table, index * CODE_LENGTH, CODE_LENGTH);
+            for (int format = 0; formats >> format != 0; format++) {
+                if ((formats & 1 << format) != 0) {
+                    result.append(ChatColor.COLOR_CHAR).append(FORMAT_CODES.charAt(format));
+                }
+            }
+            result.append(current);
+            index++;
+        }
+    }
+
+    /**
+     * @param length the amount of visible characters
+     * @return the color codes of every character, cached for common lengths
+     */
+    private char[] getTable(final int length) {
+        if (length > MAX_CACHED_LENGTH) {
+            return createTable(length);
+        }
+        char[] result = tables.get(length);
+        if (result == null) {
+            result = createTable(length);
+            tables.set(length, result); // racing threads compute the same table
+        }
+        return result;
+    }
+
+    private char[] createTable(final int length) {
+        final char[] result = new char[length * CODE_LENGTH];
+        for (int i = 0; i < length; i++) {
+            final int rgb = stops == null
+                    ? rainbow((double) i / length)
+                    : blend(length == 1 ? 0 : (double) i / (length - 1));
+            int pos = i * CODE_LENGTH;
+            result[pos++] = ChatColor.COLOR_CHAR;
+            result[pos++] = 'x';
+            for (int shift = 20; shift >= 0; shift -= 4) {
+                result[pos++] = ChatColor.COLOR_CHAR;
+                result[pos++] = HEX[rgb >> shift & 0xF];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param fraction the position in the gradient, from 0 to 1
+     * @return the color between the two nearest stops
+     */
+    private int blend(final double fraction) {
+        final double scaled = fraction * (stops.length - 1);
+        final int from = Math.min((int) scaled, stops.length - 2);
+        final double part = scaled - from;
+        final int start = stops[from];
+        final int end = stops[from + 1];
+        int result = 0;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            final int a = start >> shift & 0xFF;
+            final int b = end >> shift & 0xFF;
+            result |= (int) Math.round(a + (b - a) * part) << shift;
+        }
+        return result;
+    }
+
+    /**
+     * @param hue the hue, from 0 to 1
+     * @return the fully saturated color of the hue
+     */
+    private static int rainbow(final double hue) {
+        final double sector = hue * 6;
+        final int index = (int) sector % 6;
+        final int rising = (int) Math.round((sector - Math.floor(sector)) * 255);
+        final int falling = 255 - rising;
+        switch (index) {
+            case 0:
+                return 0xFF0000 | rising << 8;
+            case 1:
+                return falling << 16 | 0x00FF00;
+            case 2:
+                return 0x00FF00 | rising;
+            case 3:
+                return falling << 8 | 0x0000FF;
+            case 4:
+                return rising << 16 | 0x0000FF;
+            default:
+                return 0xFF0000 | falling;
+        }
+    }
+}
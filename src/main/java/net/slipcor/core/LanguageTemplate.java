@@ -0,0 +1,521 @@
+package net.slipcor.core;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A language message compiled into colorized literal segments and placeholder slots.
+ *
+ * The placeholders %1%, %2%, ... are replaced by the first, second, ... argument when rendering.
+ * Typed placeholders count from 0 and format their argument:
+ * <ul>
+ * <li>{0} - the argument as it is</li>
+ * <li>{0,number} or {0,number,#.##} - a number, optionally with a DecimalFormat pattern</li>
+ * <li>{0,duration} or {0,duration,clock} - seconds as "1h 2m 3s" or "1:02:03"</li>
+ * <li>{0,date} or {0,date,dd.MM.yyyy} - a Date, Instant or epoch millis, optionally with a SimpleDateFormat pattern</li>
+ * <li>{0,plural,# kill|# kills} or {0,plural,no kills|# kill|# kills} - a form chosen by the number, # being the number</li>
+ * </ul>
+ * Placeholders inside a &lt;gradient:...&gt; or &lt;rainbow&gt; tag are colored with the gradient after
+ * inserting them, using the cached color table of the gradient.
+ * Rendering appends all parts to a reused builder in one pass - arguments are not colorized.
+ * Formatters are shared per locale and pattern, with one instance per thread.
+ */
+public final class LanguageTemplate {
+    private static final int MAX_BUILDER = 8192; // larger builders are not kept for reuse
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private static final ThreadLocal<List<StringBuilder>> GRADIENT_BUILDERS = ThreadLocal.withInitial(ArrayList::new); // by level
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final Map<String, ThreadLocal<DecimalFormat>> numberFormats = new ConcurrentHashMap<>();
+    private static final Map<String, ThreadLocal<SimpleDateFormat>> dateFormats = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final String[] literals; // one more than there are placeholders
+    private final Part[] slots;
+    private final Slot[] placeholders; // all placeholders, including the ones inside gradients
+    private final int length; // the length of all literals
+
+    /**
+     * Reused objects for formatting on one thread
+     */
+    private static final class Scratch {
+        private final StringBuffer buffer = new StringBuffer(32);
+        private final FieldPosition position = new FieldPosition(0);
+        private final Date date = new Date();
+    }
+
+    /**
+     * Something rendered between two literals
+     */
+    private interface Part {
+        void render(StringBuilder builder, Object[] args);
+    }
+
+    /**
+     * A placeholder, appending its argument
+     */
+    private abstract static class Slot implements Part {
+        private final int index; // the argument index
+        private final String text; // the placeholder as written
+
+        private Slot(final int index, final String text) {
+            this.index = index;
+            this.text = text;
+        }
+
+        abstract void append(StringBuilder builder, Object value);
+
+        @Override
+        public void render(final StringBuilder builder, final Object[] args) {
+            if (args != null && index >= 0 && index < args.length) {
+                append(builder, args[index]);
+            } else {
+                builder.append(text);
+            }
+        }
+    }
+
+    /**
+     * A gradient around placeholders, coloring the text after inserting the arguments
+     */
+    private static final class GradientPart implements Part {
+        private final LanguageGradient gradient;
+        private final LanguageTemplate inner;
+        private final int level; // 0 if no gradient is nested inside, so nested gradients use separate builders
+
+        private GradientPart(final LanguageGradient gradient, final LanguageTemplate inner) {
+            this.gradient = gradient;
+            this.inner = inner;
+            int result = 0;
+            for (final Part part : inner.slots) {
+                if (part instanceof GradientPart) {
+                    result = Math.max(result, ((GradientPart) part).level + 1);
+                }
+            }
+            this.level = result;
+        }
+
+        @Override
+        public void render(final StringBuilder builder, final Object[] args) {
+            final List<StringBuilder> builders = GRADIENT_BUILDERS.get();
+            while (builders.size() <= level) {
+                builders.add(new StringBuilder(64));
+            }
+            final StringBuilder text = builders.get(level);
+            text.setLength(0);
+            inner.appendTo(text, args);
+            if (CoreLanguage.HEX_COLORS) {
+                gradient.apply(builder, text);
+            } else {
+                builder.append(text);
+            }
+            if (text.capacity() > MAX_BUILDER) {
+                builders.set(level, new StringBuilder(64));
+            }
+        }
+    }
+
+    private static final class TextSlot extends Slot {
+        private TextSlot(final int index, final String text) {
+            super(index, text);
+        }
+
+        @Override
+        void append(final StringBuilder builder, final Object value) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                builder.append(((Number) value).longValue());
+            } else {
+                builder.append(value);
+            }
+        }
+    }
+
+    private static final class NumberSlot extends Slot {
+        private final ThreadLocal<DecimalFormat> format; // null to append numbers as they are
+
+        private NumberSlot(final int index, final String text, final ThreadLocal<DecimalFormat> format) {
+            super(index, text);
+            this.format = format;
+        }
+
+        @Override
+        void append(final StringBuilder builder, final Object value) {
+            if (!(value instanceof Number)) {
+                builder.append(value);
+                return;
+            }
+            final boolean integral = value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+            if (format == null) {
+                if (integral) {
+                    builder.append(((Number) value).longValue());
+                } else {
+                    builder.append(((Number) value).doubleValue());
+                }
+                return;
+            }
+            final Scratch scratch = SCRATCH.get();
+            scratch.buffer.setLength(0);
+            if (integral) {
+                format.get().format(((Number) value).longValue(), scratch.buffer, scratch.position);
+            } else {
+                format.get().format(((Number) value).doubleValue(), scratch.buffer, scratch.position);
+            }
+            builder.append(scratch.buffer);
+        }
+    }
+
+    private static final class DurationSlot extends Slot {
+        private final boolean clock;
+
+        private DurationSlot(final int index, final String text, final boolean clock) {
+            super(index, text);
+            this.clock = clock;
+        }
+
+        @Override
+        void append(final StringBuilder builder, final Object value) {
+            if (!(value instanceof Number)) {
+                builder.append(value);
+                return;
+            }
+            long seconds = ((Number) value).longValue();
+            if (seconds < 0) {
+                builder.append('-');
+                seconds = -seconds;
+            }
+            final long days = seconds / 86400;
+            final long hours = seconds / 3600 % 24;
+            final long minutes = seconds / 60 % 60;
+            final long rest = seconds % 60;
+            if (clock) {
+                if (seconds >= 3600) {
+                    builder.append(seconds / 3600).append(':');
+                    appendTwoDigits(builder, minutes);
+                } else {
+                    builder.append(minutes);
+                }
+                builder.append(':');
+                appendTwoDigits(builder, rest);
+                return;
+            }
+            final int start = builder.length();
+            appendUnit(builder, start, days, 'd');
+            appendUnit(builder, start, hours, 'h');
+            appendUnit(builder, start, minutes, 'm');
+            if (rest > 0 || builder.length() == start) {
+                appendUnit(builder, start, rest, 's');
+            }
+        }
+
+        private static void appendTwoDigits(final StringBuilder builder, final long value) {
+            if (value < 10) {
+                builder.append('0');
+            }
+            builder.append(value);
+        }
+
+        private static void appendUnit(final StringBuilder builder, final int start, final long value, final char unit) {
+            if (value == 0 && unit != 's') {
+                return;
+            }
+            if (builder.length() > start) {
+                builder.append(' ');
+            }
+            builder.append(value).append(unit);
+        }
+    }
+
+    private static final class DateSlot extends Slot {
+        private final ThreadLocal<SimpleDateFormat> format;
+
+        private DateSlot(final int index, final String text, final ThreadLocal<SimpleDateFormat> format) {
+            super(index, text);
+            this.format = format;
+        }
+
+        @Override
+        void append(final StringBuilder builder, final Object value) {
+            final Scratch scratch = SCRATCH.get();
+            final Date date;
+            if (value instanceof Date) {
+                date = (Date) value;
+            } else if (value instanceof Number) {
+                date = scratch.date;
+                date.setTime(((Number) value).longValue());
+            } else if (value instanceof Instant) {
+                date = scratch.date;
+                date.setTime(((Instant) value).toEpochMilli());
+            } else {
+                builder.append(value);
+                return;
+            }
+            scratch.buffer.setLength(0);
+            format.get().format(date, scratch.buffer, scratch.position);
+            builder.append(scratch.buffer);
+        }
+    }
+
+    private static final class PluralSlot extends Slot {
+        private final String[][] forms; // zero (optional), one, other - split at #
+
+        private PluralSlot(final int index, final String text, final String[][] forms) {
+            super(index, text);
+            this.forms = forms;
+        }
+
+        @Override
+        void append(final StringBuilder builder, final Object value) {
+            if (!(value instanceof Number)) {
+                builder.append(value);
+                return;
+            }
+            final long number = ((Number) value).longValue();
+            final String[] form;
+            if (forms.length > 2 && number == 0) {
+                form = forms[0];
+            } else if (number == 1 || number == -1) {
+                form = forms[forms.length - 2];
+            } else {
+                form = forms[forms.length - 1];
+            }
+            builder.append(form[0]);
+            for (int i = 1; i < form.length; i++) {
+                builder.append(number).append(form[i]);
+            }
+        }
+    }
+
+    private LanguageTemplate(final String source, final String[] literals, final Part[] slots) {
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+        final List<Slot> all = new ArrayList<>();
+        for (final Part slot : slots) {
+            if (slot instanceof GradientPart) {
+                all.addAll(Arrays.asList(((GradientPart) slot).inner.placeholders));
+            } else {
+                all.add((Slot) slot);
+            }
+        }
+        this.placeholders = all.toArray(new Slot[0]);
+        int total = 0;
+        for (final String literal : literals) {
+            total += literal.length();
+        }
+        this.length = total;
+    }
+
+    /**
+     * Compile a message, formatting typed placeholders for English
+     *
+     * @param source the message with & color codes and placeholders
+     * @return the compiled template
+     */
+    public static LanguageTemplate compile(final String source) {
+        return compile(source, Locale.ENGLISH, problem -> { });
+    }
+
+    /**
+     * Compile a message
+     *
+     * @param source   the message with & color codes and placeholders
+     * @param locale   the locale to format typed placeholders for
+     * @param problems informed about invalid typed placeholders, which are kept as they are
+     * @return the compiled template
+     */
+    public static LanguageTemplate compile(final String source, final Locale locale, final Consumer<String> problems) {
+        final List<String> literals = new ArrayList<>();
+        final List<Part> slots = new ArrayList<>();
+
+        int start = 0;
+        int pos = 0;
+        while (pos < source.length()) {
+            final char current = source.charAt(pos);
+            final LanguageGradient gradient = current == '<' ? LanguageGradient.find(source, pos) : null;
+            if (gradient != null) {
+                final int inner = pos + gradient.getTag().length();
+                final int close = source.indexOf(gradient.getCloseTag(), inner);
+                final int end = close < 0 ? source.length() : close + gradient.getCloseTag().length();
+                final LanguageTemplate template = compile(source.substring(inner, close < 0 ? end : close), locale, problems);
+                if (template.placeholders.length > 0) {
+                    literals.add(CoreLanguage.colorize(source.substring(start, pos)));
+                    slots.add(new GradientPart(gradient, template));
+                    start = end;
+                }
+                pos = end; // gradients without placeholders are colored with the literal
+                continue;
+            }
+            int end = pos + 1;
+            while (end < source.length() && end - pos < 10 && Character.isDigit(source.charAt(end))) {
+                end++;
+            }
+            if (end == pos + 1 || end >= source.length() || (current != '%' && current != '{')) {
+                pos++;
+                continue;
+            }
+            final int index = Integer.parseInt(source.substring(pos + 1, end));
+            Slot slot = null;
+            if (current == '%' && source.charAt(end) == '%') {
+                slot = new TextSlot(index - 1, source.substring(pos, end + 1));
+            } else if (current == '{' && (source.charAt(end) == '}' || source.charAt(end) == ',')) {
+                final int close = source.indexOf('}', end);
+                if (close > 0) {
+                    end = close;
+                    slot = createSlot(index, source.substring(pos, close + 1), locale, problems);
+                }
+            }
+            if (slot == null) {
+                pos++;
+                continue;
+            }
+            literals.add(CoreLanguage.colorize(source.substring(start, pos)));
+            slots.add(slot);
+            start = end + 1;
+            pos = start;
+        }
+        literals.add(CoreLanguage.colorize(source.substring(start)));
+
+        return new LanguageTemplate(source, literals.toArray(new String[0]), slots.toArray(new Part[0]));
+    }
+
+    /**
+     * Create the slot of a typed placeholder
+     *
+     * @param index    the argument index
+     * @param text     the placeholder, including braces
+     * @param locale   the locale to format for
+     * @param problems informed if the placeholder is invalid
+     * @return the slot, null if the placeholder is invalid
+     */
+    private static Slot createSlot(final int index, final String text, final Locale locale, final Consumer<String> problems) {
+        final String[] parts = text.substring(1, text.length() - 1).split(",", 3);
+        if (parts.length == 1) {
+            return new TextSlot(index, text);
+        }
+        final String type = parts[1].trim();
+        final String style = parts.length > 2 ? parts[2] : null;
+        try {
+            switch (type) {
+                case "number":
+                    return new NumberSlot(index, text, style == null ? null : numberFormats.computeIfAbsent(
+                            locale + "|" + style, key -> createNumberFormat(style, locale)));
+                case "duration":
+                    if (style != null && !"clock".equals(style.trim())) {
+                        break;
+                    }
+                    return new DurationSlot(index, text, style != null);
+                case "date":
+                    final String pattern = style == null ? "yyyy-MM-dd HH:mm" : style;
+                    return new DateSlot(index, text, dateFormats.computeIfAbsent(
+                            locale + "|" + pattern, key -> createDateFormat(pattern, locale)));
+                case "plural":
+                    if (style == null) {
+                        break;
+                    }
+                    final String[] forms = style.split("\\|", -1);
+                    if (forms.length < 2 || forms.length > 3) {
+                        break;
+                    }
+                    final String[][] compiled = new String[forms.length][];
+                    for (int i = 0; i < forms.length; i++) {
+                        compiled[i] = CoreLanguage.colorize(forms[i]).split("#", -1);
+                    }
+                    return new PluralSlot(index, text, compiled);
+                default:
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            problems.accept("invalid placeholder " + text + ": " + e.getMessage());
+            return null;
+        }
+        problems.accept("invalid placeholder " + text);
+        return null;
+    }
+
+    private static ThreadLocal<DecimalFormat> createNumberFormat(final String pattern, final Locale locale) {
+        final DecimalFormat prototype = new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale));
+        return ThreadLocal.withInitial(() -> (DecimalFormat) prototype.clone());
+    }
+
+    private static ThreadLocal<SimpleDateFormat> createDateFormat(final String pattern, final Locale locale) {
+        final SimpleDateFormat prototype = new SimpleDateFormat(pattern, locale);
+        return ThreadLocal.withInitial(() -> (SimpleDateFormat) prototype.clone());
+    }
+
+    /**
+     * @return the message as written in the language file
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the argument numbers of the placeholders, in order of appearance - %1% and {0} being 1
+     */
+    public int[] getPlaceholders() {
+        final int[] result = new int[placeholders.length];
+        for (int i = 0; i < placeholders.length; i++) {
+            result[i] = placeholders[i].index + 1;
+        }
+        return result;
+    }
+
+    /**
+     * @param number the position of the placeholder, in order of appearance
+     * @return the placeholder as written in the message
+     */
+    String getPlaceholderText(final int number) {
+        return placeholders[number].text;
+    }
+
+    /**
+     * Render the message
+     *
+     * @param args the placeholder values, placeholders without value are kept as they are
+     * @return the colorized message
+     */
+    public String render(final Object... args) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        final StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        builder.ensureCapacity(length + 16 * slots.length);
+        appendTo(builder, args);
+        final String result = builder.toString();
+        if (builder.capacity() > MAX_BUILDER) {
+            BUILDER.set(new StringBuilder(256));
+        }
+        return result;
+    }
+
+    /**
+     * Append the rendered message
+     *
+     * @param builder the builder to append to
+     * @param args    the placeholder values
+     */
+    private void appendTo(final StringBuilder builder, final Object[] args) {
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            slots[i].render(builder, args);
+        }
+        builder.append(literals[slots.length]);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
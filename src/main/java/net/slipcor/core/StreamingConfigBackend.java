@@ -0,0 +1,914 @@
+package net.slipcor.core;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * A line based YML reader and writer that keeps the comments and the layout of a file.
+ *
+ * It covers what config and language files consist of: nested mappings, scalars, block and flow
+ * lists of scalars. Anything else, like anchors, tags or lists of mappings, is handed to Bukkit.
+ *
+ * Besides the comment lines in front of each node, the comments map holds the layout of a node under
+ * its path followed by a dot - its inline comment and whether it is a flow list - and the comment
+ * lines after the last node under the empty key. Neither can be the path of a node.
+ */
+final class StreamingConfigBackend implements ConfigBackend {
+    static final String TRAILING = ""; // the comments key of the lines after the last node
+    static final String LAYOUT = "."; // appended to a path, the comments key of the layout of the node
+    private static final String FLOW = "[]"; // layout marker of a list written in flow style
+
+    private static final Object SECTION = new Object(); // marks a node that is a section
+
+    private static final Pattern AMBIGUOUS = Pattern.compile( // octal, binary, hex, sexagesimal, underscores, dates
+            "[-+]?0[0-9_]+|[-+]?0[bBxXoO].*|[-+]?[0-9][0-9_]*(:[0-5]?[0-9])+(\\.[0-9_]*)?|[-+.0-9_]*_[-+.0-9_eE]*|[0-9]{4}-[0-9]{1,2}-[0-9]{1,2}.*|=|<<");
+
+    private static final Set<String> TRUE = new HashSet<>(Arrays.asList("true", "True", "TRUE", "yes", "Yes", "YES", "on", "On", "ON"));
+    private static final Set<String> FALSE = new HashSet<>(Arrays.asList("false", "False", "FALSE", "no", "No", "NO", "off", "Off", "OFF"));
+    private static final Set<String> NULL = new HashSet<>(Arrays.asList("", "~", "null", "Null", "NULL"));
+
+    /**
+     * Valid YML that this backend does not handle
+     */
+    private static class UnsupportedYamlException extends Exception {
+        UnsupportedYamlException(final String message) {
+            super(message);
+        }
+    }
+
+    @Override
+    public void load(final String content, final YamlConfiguration target,
+                     final Map<String, List<String>> comments) throws InvalidConfigurationException {
+        final List<Object[]> values = new ArrayList<>();
+        final Map<String, List<String>> found = new LinkedHashMap<>();
+        final String text = content.startsWith("\uFEFF") ? content.substring(1) : content;
+        try {
+            parse(text.split("\r?\n", -1), values, found);
+        } catch (UnsupportedYamlException e) {
+            BUKKIT.load(content, target, comments);
+            return;
+        }
+        for (final Object[] value : values) {
+            if (value[1] == SECTION) {
+                target.createSection((String) value[0]);
+            } else {
+                target.set((String) value[0], value[1]);
+            }
+        }
+        comments.putAll(found);
+    }
+
+    @Override
+    public String save(final YamlConfiguration source, final String header, final Map<String, List<String>> comments,
+                       final Function<String, String> entryComments) {
+        final StringBuilder builder = new StringBuilder();
+        final String headerLine = header == null ? null : "# " + header;
+        if (headerLine != null) {
+            builder.append(headerLine).append('\n');
+        }
+        try {
+            writeSection(builder, source, "", 0, headerLine, comments, entryComments);
+        } catch (UnsupportedYamlException e) {
+            return BUKKIT.save(source, header, comments, entryComments);
+        }
+        return builder.toString();
+    }
+
+    /////////////
+    //         //
+    // READING //
+    //         //
+    /////////////
+
+    /**
+     * Read all lines into values and comments
+     *
+     * @param lines    the lines of the file
+     * @param values   the list to add [path, value] pairs to, in file order
+     * @param comments the map to put the comment lines and the layout of each node into
+     */
+    private static void parse(final String[] lines, final List<Object[]> values,
+                              final Map<String, List<String>> comments) throws UnsupportedYamlException {
+        final int[] indents = new int[lines.length]; // the indentation of the sections we are in
+        final String[] paths = new String[lines.length]; // the paths of the sections we are in
+        int depth = 0;
+
+        List<String> pending = new ArrayList<>();
+        int pos = 0;
+
+        while (pos < lines.length) {
+            final String line = lines[pos];
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                pos++;
+                continue;
+            }
+            if (trimmed.startsWith("#")) {
+                pending.add(trimmed);
+                pos++;
+                continue;
+            }
+            if (trimmed.equals("---") && values.isEmpty()) {
+                pos++;
+                continue;
+            }
+
+            final int indent = getIndent(line);
+            while (depth > 0 && indents[depth - 1] >= indent) {
+                depth--;
+            }
+
+            final int colon = getKeyEnd(trimmed);
+            final String key = readKey(trimmed.substring(0, colon));
+            final String path = depth == 0 ? key : paths[depth - 1] + '.' + key;
+
+            if (!pending.isEmpty()) {
+                comments.put(path, pending);
+                pending = new ArrayList<>();
+            }
+
+            final String rest = trimmed.substring(colon + 1).trim();
+            pos++;
+
+            if (rest.isEmpty() || rest.startsWith("#")) {
+                if (!rest.isEmpty()) {
+                    addLayout(comments, path, rest);
+                }
+                int next = getNextContent(lines, pos);
+                if (next >= 0 && isListItem(lines[next].trim()) && getIndent(lines[next]) >= indent) {
+                    final int itemIndent = getIndent(lines[next]);
+                    final List<Object> list = new ArrayList<>();
+                    while (next >= 0 && getIndent(lines[next]) == itemIndent && isListItem(lines[next].trim())) {
+                        final Object[] item = readValue(lines[next].trim().substring(1).trim(), lines, next + 1, itemIndent);
+                        if (item[0] == SECTION) {
+                            throw new UnsupportedYamlException("section in a list");
+                        }
+                        list.add(item[0]);
+                        pos = (Integer) item[1];
+                        next = getNextContent(lines, pos);
+                    }
+                    values.add(new Object[]{path, list});
+                } else if (next >= 0 && getIndent(lines[next]) > indent) {
+                    values.add(new Object[]{path, SECTION});
+                    indents[depth] = indent;
+                    paths[depth] = path;
+                    depth++;
+                }
+                // otherwise the value is null, and Bukkit does not keep null values
+                continue;
+            }
+
+            final Object[] value = readValue(rest, lines, pos, indent);
+            if (value[0] != null) {
+                values.add(new Object[]{path, value[0]});
+            }
+            if (rest.charAt(0) == '[') {
+                addLayout(comments, path, FLOW);
+            }
+            if (value[2] != null) {
+                addLayout(comments, path, (String) value[2]);
+            }
+            pos = (Integer) value[1];
+        }
+        if (!pending.isEmpty()) {
+            comments.put(TRAILING, pending);
+        }
+    }
+
+    private static void addLayout(final Map<String, List<String>> comments, final String path, final String layout) {
+        comments.computeIfAbsent(path + LAYOUT, key -> new ArrayList<>()).add(layout);
+    }
+
+    /**
+     * Read a value that started on a line already consumed
+     *
+     * @param text         the value part of the line
+     * @param lines        all lines
+     * @param pos          the line after the value start
+     * @param parentIndent the indentation of the key or list item owning the value
+     * @return [value, position of the line after the value, comment after the value on its first line or null]
+     */
+    private static Object[] readValue(final String text, final String[] lines, int pos,
+                                      final int parentIndent) throws UnsupportedYamlException {
+        if (text.isEmpty()) {
+            return new Object[]{null, pos, null};
+        }
+        final char first = text.charAt(0);
+        if (first == '"' || first == '\'') {
+            final StringBuilder raw = new StringBuilder(text);
+            int end = getQuoteEnd(raw, first);
+            while (end < 0 && pos < lines.length) {
+                raw.append('\n').append(lines[pos++]);
+                end = getQuoteEnd(raw, first);
+            }
+            if (end < 0) {
+                throw new UnsupportedYamlException("unterminated quote");
+            }
+            final String after = raw.substring(end + 1).trim();
+            if (!after.isEmpty() && !after.startsWith("#")) {
+                throw new UnsupportedYamlException("content after quote");
+            }
+            final String folded = fold(raw.substring(1, end), first == '"');
+            return new Object[]{first == '"' ? unescape(folded) : folded.replace("''", "'"), pos,
+                    after.isEmpty() ? null : after};
+        }
+        if (first == '[') {
+            return new Object[]{readFlowList(stripComment(text)), pos, getComment(text)};
+        }
+        if (first == '{') {
+            if (!stripComment(text).equals("{}")) {
+                throw new UnsupportedYamlException("flow mapping");
+            }
+            return new Object[]{SECTION, pos, getComment(text)};
+        }
+        if (first == '|' || first == '>') {
+            final Object[] block = readBlock(stripComment(text), lines, pos, parentIndent);
+            return new Object[]{block[0], block[1], getComment(text)};
+        }
+        if ("&*!%@`?".indexOf(first) >= 0 || (first == '-' && (text.length() == 1 || text.charAt(1) == ' '))) {
+            throw new UnsupportedYamlException("unsupported value " + text);
+        }
+
+        // plain scalar, possibly continued on more indented lines
+        final String comment = getComment(text);
+        final StringBuilder plain = new StringBuilder(stripComment(text));
+        int blanks = 0;
+        while (pos < lines.length) {
+            final String trimmed = lines[pos].trim();
+            if (trimmed.isEmpty()) {
+                blanks++;
+                pos++;
+                continue;
+            }
+            if (getIndent(lines[pos]) <= parentIndent || trimmed.startsWith("#") || comment != null) {
+                break; // a comment ends a plain scalar
+            }
+            for (int i = 0; i < blanks; i++) {
+                plain.append('\n');
+            }
+            if (blanks == 0) {
+                plain.append(' ');
+            }
+            plain.append(stripComment(trimmed));
+            blanks = 0;
+            pos++;
+        }
+        pos -= blanks; // blank lines after the value belong to what follows
+        final String result = plain.toString();
+        if (result.contains(": ") || result.endsWith(":")) {
+            throw new UnsupportedYamlException("mapping as value");
+        }
+        return new Object[]{resolve(result), pos, comment};
+    }
+
+    /**
+     * Read a literal (|) or folded (>) block scalar
+     */
+    private static Object[] readBlock(final String header, final String[] lines, int pos,
+                                      final int parentIndent) throws UnsupportedYamlException {
+        final boolean literal = header.charAt(0) == '|';
+        final String chomping = header.substring(1);
+        if (!chomping.isEmpty() && !chomping.equals("-") && !chomping.equals("+")) {
+            throw new UnsupportedYamlException("block indentation indicator");
+        }
+
+        final List<String> content = new ArrayList<>();
+        int contentIndent = -1;
+        while (pos < lines.length) {
+            final String line = lines[pos];
+            if (line.trim().isEmpty()) {
+                content.add("");
+                pos++;
+                continue;
+            }
+            final int indent = getIndent(line);
+            if (indent <= parentIndent || (contentIndent >= 0 && indent < contentIndent)) {
+                break;
+            }
+            if (contentIndent < 0) {
+                contentIndent = indent;
+            } else if (!literal && indent > contentIndent) {
+                throw new UnsupportedYamlException("indented folded block");
+            }
+            content.add(line.substring(contentIndent));
+            pos++;
+        }
+
+        int trailing = 0; // empty lines at the end
+        while (trailing < content.size() && content.get(content.size() - 1 - trailing).isEmpty()) {
+            trailing++;
+        }
+        pos -= trailing;
+
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < content.size() - trailing; i++) {
+            final String line = content.get(i);
+            if (i > 0) {
+                result.append(literal || line.isEmpty() || content.get(i - 1).isEmpty() ? "\n" : " ");
+            }
+            result.append(line);
+        }
+        if (chomping.isEmpty() && result.length() > 0) {
+            result.append('\n');
+        } else if (chomping.equals("+")) {
+            for (int i = 0; i <= trailing; i++) {
+                result.append('\n');
+            }
+        }
+        return new Object[]{result.toString(), pos};
+    }
+
+    /**
+     * Read a flow list of scalars, like [a, 'b', 3]
+     */
+    private static List<Object> readFlowList(final String text) throws UnsupportedYamlException {
+        if (!text.endsWith("]")) {
+            throw new UnsupportedYamlException("multi line flow list");
+        }
+        final List<Object> result = new ArrayList<>();
+        final String inner = text.substring(1, text.length() - 1).trim();
+        if (inner.isEmpty()) {
+            return result;
+        }
+        int start = 0;
+        char quote = 0;
+        for (int pos = 0; pos <= inner.length(); pos++) {
+            final char current = pos < inner.length() ? inner.charAt(pos) : ',';
+            if (quote != 0) {
+                if (current == '\\' && quote == '"') {
+                    pos++;
+                } else if (current == quote) {
+                    quote = 0;
+                }
+            } else if (current == '"' || current == '\'') {
+                quote = current;
+            } else if (current == '[' || current == '{' || current == ']' || current == '}') {
+                throw new UnsupportedYamlException("nested flow collection");
+            } else if (current == ',') {
+                final String item = inner.substring(start, pos).trim();
+                final Object[] value = readValue(item, new String[0], 0, 0);
+                if (value[0] == SECTION || (value[0] instanceof String && item.indexOf(':') >= 0 && item.charAt(0) != '"' && item.charAt(0) != '\'')) {
+                    throw new UnsupportedYamlException("mapping in flow list");
+                }
+                result.add(value[0]);
+                start = pos + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolve a plain scalar like YAML 1.1 does
+     *
+     * @param plain the scalar text
+     * @return a Boolean, Integer, Long, BigInteger, Double, String or null
+     */
+    private static Object resolve(final String plain) throws UnsupportedYamlException {
+        if (NULL.contains(plain)) {
+            return null;
+        }
+        if (TRUE.contains(plain)) {
+            return Boolean.TRUE;
+        }
+        if (FALSE.contains(plain)) {
+            return Boolean.FALSE;
+        }
+        final char first = plain.charAt(0);
+        if ((first < '0' || first > '9') && first != '-' && first != '+' && first != '.' && first != '_'
+                && first != '=' && first != '<') {
+            return plain; // no number, skip the checks below
+        }
+        if (isInt(plain)) {
+            final BigInteger value = new BigInteger(plain.startsWith("+") ? plain.substring(1) : plain);
+            if (value.bitLength() < 32) {
+                return value.intValue();
+            }
+            if (value.bitLength() < 64) {
+                return value.longValue();
+            }
+            return value;
+        }
+        if (isFloat(plain)) {
+            return Double.valueOf(plain);
+        }
+        switch (plain) {
+            case ".inf":
+            case ".Inf":
+            case ".INF":
+            case "+.inf":
+            case "+.Inf":
+            case "+.INF":
+                return Double.POSITIVE_INFINITY;
+            case "-.inf":
+            case "-.Inf":
+            case "-.INF":
+                return Double.NEGATIVE_INFINITY;
+            case ".nan":
+            case ".NaN":
+            case ".NAN":
+                return Double.NaN;
+            default:
+                break;
+        }
+        if (AMBIGUOUS.matcher(plain).matches()) {
+            throw new UnsupportedYamlException("ambiguous scalar " + plain);
+        }
+        return plain;
+    }
+
+    /**
+     * @return whether a scalar is a decimal integer without leading zeros, like [-+]?(0|[1-9][0-9]*)
+     */
+    private static boolean isInt(final String plain) {
+        final int start = plain.charAt(0) == '-' || plain.charAt(0) == '+' ? 1 : 0;
+        if (start == plain.length() || (plain.charAt(start) == '0' && plain.length() > start + 1)) {
+            return false;
+        }
+        for (int pos = start; pos < plain.length(); pos++) {
+            if (plain.charAt(pos) < '0' || plain.charAt(pos) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether a scalar is a decimal number, like [-+]?(\.[0-9]+|[0-9]+(\.[0-9]*)?)([eE][-+]?[0-9]+)?
+     */
+    private static boolean isFloat(final String plain) {
+        int pos = plain.charAt(0) == '-' || plain.charAt(0) == '+' ? 1 : 0;
+        final int integer = pos;
+        while (pos < plain.length() && plain.charAt(pos) >= '0' && plain.charAt(pos) <= '9') {
+            pos++;
+        }
+        int digits = pos - integer;
+        if (pos < plain.length() && plain.charAt(pos) == '.') {
+            final int fraction = ++pos;
+            while (pos < plain.length() && plain.charAt(pos) >= '0' && plain.charAt(pos) <= '9') {
+                pos++;
+            }
+            if (digits == 0 && pos == fraction) {
+                return false;
+            }
+            digits += pos - fraction;
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (pos < plain.length() && (plain.charAt(pos) == 'e' || plain.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < plain.length() && (plain.charAt(pos) == '-' || plain.charAt(pos) == '+')) {
+                pos++;
+            }
+            final int exponent = pos;
+            while (pos < plain.length() && plain.charAt(pos) >= '0' && plain.charAt(pos) <= '9') {
+                pos++;
+            }
+            if (pos == exponent) {
+                return false;
+            }
+        }
+        return pos == plain.length();
+    }
+
+    /**
+     * Find the colon ending the key of a trimmed line
+     */
+    private static int getKeyEnd(final String trimmed) throws UnsupportedYamlException {
+        final char first = trimmed.charAt(0);
+        if (first == '"' || first == '\'') {
+            final int end = getQuoteEnd(new StringBuilder(trimmed), first);
+            if (end > 0 && trimmed.startsWith(":", end + 1)
+                    && (end + 2 == trimmed.length() || trimmed.charAt(end + 2) == ' ')) {
+                return end + 1;
+            }
+            throw new UnsupportedYamlException("not a mapping: " + trimmed);
+        }
+        if ("-?[]{}&*!|>%@`,".indexOf(first) >= 0) {
+            throw new UnsupportedYamlException("not a mapping: " + trimmed);
+        }
+        for (int pos = trimmed.indexOf(':'); pos > 0; pos = trimmed.indexOf(':', pos + 1)) {
+            if (pos + 1 == trimmed.length() || trimmed.charAt(pos + 1) == ' ') {
+                return pos;
+            }
+        }
+        throw new UnsupportedYamlException("not a mapping: " + trimmed);
+    }
+
+    /**
+     * Unquote a mapping key
+     */
+    private static String readKey(final String raw) throws UnsupportedYamlException {
+        final String key;
+        if (raw.startsWith("'")) {
+            key = raw.substring(1, raw.length() - 1).replace("''", "'");
+        } else if (raw.startsWith("\"")) {
+            key = unescape(raw.substring(1, raw.length() - 1));
+        } else {
+            key = raw.trim();
+        }
+        if (key.isEmpty() || key.indexOf('.') >= 0) {
+            throw new UnsupportedYamlException("key that is no config path: " + raw);
+        }
+        return key;
+    }
+
+    /**
+     * Find the closing quote of a quoted scalar starting at position 0
+     *
+     * @return the position of the closing quote, -1 if there is none yet
+     */
+    private static int getQuoteEnd(final CharSequence text, final char quote) {
+        for (int pos = 1; pos < text.length(); pos++) {
+            final char current = text.charAt(pos);
+            if (quote == '"' && current == '\\') {
+                pos++;
+            } else if (current == quote) {
+                if (quote == '\'' && pos + 1 < text.length() && text.charAt(pos + 1) == '\'') {
+                    pos++;
+                } else {
+                    return pos;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fold the line breaks of a multi line quoted scalar
+     *
+     * @param raw     the content between the quotes
+     * @param escapes whether a backslash at the line end escapes the line break
+     */
+    private static String fold(final String raw, final boolean escapes) {
+        if (raw.indexOf('\n') < 0) {
+            return raw;
+        }
+        final String[] parts = raw.split("\n", -1);
+        final StringBuilder result = new StringBuilder();
+        boolean joined = false; // whether the previous line break was escaped
+        int blanks = 0;
+        for (int i = 0; i < parts.length; i++) {
+            String part = i == 0 ? parts[i] : trimStart(parts[i]);
+            if (i < parts.length - 1) {
+                part = trimEnd(part);
+            }
+            if (i > 0 && i < parts.length - 1 && part.isEmpty()) {
+                blanks++;
+                continue;
+            }
+            if (i > 0 && !joined) {
+                if (blanks == 0) {
+                    result.append(' ');
+                }
+                for (int blank = 0; blank < blanks; blank++) {
+                    result.append('\n');
+                }
+            }
+            blanks = 0;
+            joined = escapes && i < parts.length - 1 && endsWithEscape(part);
+            result.append(joined ? part.substring(0, part.length() - 1) : part);
+        }
+        return result.toString();
+    }
+
+    private static boolean endsWithEscape(final String part) {
+        int count = 0;
+        for (int pos = part.length() - 1; pos >= 0 && part.charAt(pos) == '\\'; pos--) {
+            count++;
+        }
+        return count % 2 == 1;
+    }
+
+    /**
+     * Resolve the escape sequences of a double quoted scalar
+     */
+    private static String unescape(final String text) throws UnsupportedYamlException {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        final StringBuilder result = new StringBuilder(text.length());
+        for (int pos = 0; pos < text.length(); pos++) {
+            final char current = text.charAt(pos);
+            if (current != '\\' || pos + 1 == text.length()) {
+                result.append(current);
+                continue;
+            }
+            final char escaped = text.charAt(++pos);
+            switch (escaped) {
+                case '0': result.append('\0'); break;
+                case 'a': result.append('\u0007'); break;
+                case 'b': result.append('\b'); break;
+                case 't':
+                case '\t': result.append('\t'); break;
+                case 'n': result.append('\n'); break;
+                case 'v': result.append('\u000B'); break;
+                case 'f': result.append('\f'); break;
+                case 'r': result.append('\r'); break;
+                case 'e': result.append('\u001B'); break;
+                case ' ': result.append(' '); break;
+                case '"': result.append('"'); break;
+                case '/': result.append('/'); break;
+                case '\\': result.append('\\'); break;
+                case 'N': result.append('\u0085'); break;
+                case '_': result.append('\u00A0'); break;
+                case 'L': result.append('\u2028'); break;
+                case 'P': result.append('\u2029'); break;
+                case 'x':
+                case 'u':
+                case 'U':
+                    final int length = escaped == 'x' ? 2 : escaped == 'u' ? 4 : 8;
+                    try {
+                        result.appendCodePoint(Integer.parseInt(text.substring(pos + 1, pos + 1 + length), 16));
+                    } catch (RuntimeException e) {
+                        throw new UnsupportedYamlException("broken escape sequence");
+                    }
+                    pos += length;
+                    break;
+                default:
+                    throw new UnsupportedYamlException("unknown escape sequence \\" + escaped);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return the comment after a value on the same line, like "# note", null if there is none
+     */
+    private static String getComment(final String text) {
+        if (text.startsWith("#")) {
+            return text;
+        }
+        final int comment = text.indexOf(" #");
+        return comment < 0 ? null : text.substring(comment + 1).trim();
+    }
+
+    private static String stripComment(final String text) {
+        if (text.startsWith("#")) {
+            return "";
+        }
+        final int comment = text.indexOf(" #");
+        return comment < 0 ? text.trim() : text.substring(0, comment).trim();
+    }
+
+    private static boolean isListItem(final String trimmed) {
+        return trimmed.equals("-") || trimmed.startsWith("- ");
+    }
+
+    private static int getIndent(final String line) throws UnsupportedYamlException {
+        int indent = 0;
+        while (indent < line.length() && line.charAt(indent) == ' ') {
+            indent++;
+        }
+        if (indent < line.length() && line.charAt(indent) == '\t') {
+            throw new UnsupportedYamlException("tab indentation");
+        }
+        return indent;
+    }
+
+    private static int getNextContent(final String[] lines, int pos) {
+        for (; pos < lines.length; pos++) {
+            final String trimmed = lines[pos].trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private static String trimStart(final String text) {
+        int start = 0;
+        while (start < text.length() && (text.charAt(start) == ' ' || text.charAt(start) == '\t')) {
+            start++;
+        }
+        return text.substring(start);
+    }
+
+    private static String trimEnd(final String text) {
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    /////////////
+    //         //
+    // WRITING //
+    //         //
+    /////////////
+
+    /**
+     * Write all nodes of a section, including their comments
+     */
+    private static void writeSection(final StringBuilder builder, final ConfigurationSection section, final String prefix,
+                                     final int indent, final String headerLine, final Map<String, List<String>> comments,
+                                     final Function<String, String> entryComments) throws UnsupportedYamlException {
+        for (final String key : section.getKeys(false)) {
+            final String path = prefix + key;
+            final Object value = section.get(key);
+
+            final String entryComment = entryComments.apply(path);
+            final String entryLine = entryComment == null || entryComment.isEmpty() ? null : "# " + entryComment;
+
+            final List<String> lines = new ArrayList<>();
+            final List<String> userLines = comments.get(path);
+            if (userLines != null) {
+                for (final String line : userLines) {
+                    if (!line.equals(headerLine) && !line.equals(entryLine)) {
+                        lines.add(line);
+                    }
+                }
+            }
+            if (entryLine != null) {
+                lines.add(entryLine);
+            }
+            if (!lines.isEmpty()) {
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+                for (final String line : lines) {
+                    indent(builder, indent).append(line).append('\n');
+                }
+            }
+
+            indent(builder, indent).append(isPlain(key) ? key : quote(key)).append(':');
+
+            final List<String> layout = comments.get(path + LAYOUT);
+            String inline = null;
+            boolean flow = false;
+            if (layout != null) {
+                for (final String item : layout) {
+                    if (FLOW.equals(item)) {
+                        flow = true;
+                    } else {
+                        inline = item;
+                    }
+                }
+            }
+
+            if (value instanceof ConfigurationSection) {
+                final ConfigurationSection child = (ConfigurationSection) value;
+                if (child.getKeys(false).isEmpty()) {
+                    builder.append(" {}");
+                    appendComment(builder, inline).append('\n');
+                } else {
+                    appendComment(builder, inline).append('\n');
+                    writeSection(builder, child, path + '.', indent + 2, headerLine, comments, entryComments);
+                }
+            } else if (value instanceof List) {
+                final List<?> list = (List<?>) value;
+                if (list.isEmpty() || flow) {
+                    builder.append(" [");
+                    for (int pos = 0; pos < list.size(); pos++) {
+                        builder.append(pos == 0 ? "" : ", ").append(toFlowScalar(list.get(pos)));
+                    }
+                    builder.append(']');
+                    appendComment(builder, inline).append('\n');
+                } else {
+                    appendComment(builder, inline).append('\n');
+                    for (final Object item : list) {
+                        indent(builder, indent).append("- ").append(toScalar(item)).append('\n');
+                    }
+                }
+            } else {
+                builder.append(' ').append(toScalar(value));
+                appendComment(builder, inline).append('\n');
+            }
+        }
+        if (prefix.isEmpty()) {
+            final List<String> trailing = comments.get(TRAILING);
+            if (trailing != null && !trailing.isEmpty()) {
+                builder.append('\n');
+                for (final String line : trailing) {
+                    builder.append(line).append('\n');
+                }
+            }
+        }
+    }
+
+    private static StringBuilder appendComment(final StringBuilder builder, final String comment) {
+        return comment == null ? builder : builder.append(' ').append(comment);
+    }
+
+    /**
+     * Format a value as YML scalar inside a flow list
+     */
+    private static String toFlowScalar(final Object value) throws UnsupportedYamlException {
+        final String result = toScalar(value);
+        if (value instanceof String && result.equals(value) && (result.indexOf(',') >= 0
+                || result.indexOf('[') >= 0 || result.indexOf(']') >= 0 || result.indexOf('{') >= 0 || result.indexOf('}') >= 0)) {
+            return quote((String) value);
+        }
+        return result;
+    }
+
+    private static StringBuilder indent(final StringBuilder builder, final int indent) {
+        for (int pos = 0; pos < indent; pos++) {
+            builder.append(' ');
+        }
+        return builder;
+    }
+
+    /**
+     * Format a value as YML scalar
+     */
+    private static String toScalar(final Object value) throws UnsupportedYamlException {
+        if (value == null) {
+            return "~";
+        }
+        if (value instanceof String) {
+            final String string = (String) value;
+            return isPlain(string) ? string : quote(string);
+        }
+        if (value instanceof Character) {
+            return quote(value.toString());
+        }
+        if (value instanceof Boolean || value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte || value instanceof BigInteger) {
+            return value.toString();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            final double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number)) {
+                return ".NaN";
+            }
+            if (Double.isInfinite(number)) {
+                return number > 0 ? ".inf" : "-.inf";
+            }
+            return value.toString();
+        }
+        throw new UnsupportedYamlException("can not write " + value.getClass().getSimpleName());
+    }
+
+    /**
+     * @return whether a string can be written without quotes and is read back as the same string
+     */
+    private static boolean isPlain(final String text) {
+        if (text.isEmpty() || "-?:,[]{}#&*!|>'\"%@` \t".indexOf(text.charAt(0)) >= 0
+                || text.endsWith(" ") || text.endsWith(":") || text.contains(": ") || text.contains(" #")) {
+            return false;
+        }
+        for (int pos = 0; pos < text.length(); pos++) {
+            if (!isPrintable(text.charAt(pos)) || text.charAt(pos) == '\t') {
+                return false;
+            }
+        }
+        try {
+            return text.equals(resolve(text));
+        } catch (UnsupportedYamlException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Quote a string, single quoted if possible
+     */
+    private static String quote(final String text) {
+        boolean printable = true;
+        for (int pos = 0; pos < text.length(); pos++) {
+            if (!isPrintable(text.charAt(pos))) {
+                printable = false;
+                break;
+            }
+        }
+        if (printable) {
+            return '\'' + text.replace("'", "''") + '\'';
+        }
+        final StringBuilder result = new StringBuilder("\"");
+        for (int pos = 0; pos < text.length(); pos++) {
+            final char current = text.charAt(pos);
+            switch (current) {
+                case '"': result.append("\\\""); break;
+                case '\\': result.append("\\\\"); break;
+                case '\n': result.append("\\n"); break;
+                case '\r': result.append("\\r"); break;
+                case '\t': result.append("\\t"); break;
+                default:
+                    if (isPrintable(current)) {
+                        result.append(current);
+                    } else {
+                        result.append(String.format("\\u%04X", (int) current));
+                    }
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private static boolean isPrintable(final char current) {
+        return (current >= ' ' && current != 0x7F && current != 0x85 && current != 0xFEFF
+                && current != 0x2028 && current != 0x2029) || current == '\t';
+    }
+}
@@ -0,0 +1,110 @@
+package net.slipcor.core;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingConfigBackendTest {
+    private static final String HEADER = "=== [ Test ] ===";
+
+    private static final String CONFIG = String.join("\n",
+            "# === [ Test ] ===",
+            "",
+            "# user comment",
+            "general:",
+            "  name: It's me",
+            "  plain: hello world # inline note",
+            "  int: 42 # the answer",
+            "  dbl: 1.5",
+            "  bool: true",
+            "  str: 'yes'",
+            "  list:",
+            "  - a",
+            "  - 'b: c'",
+            "  flow: [x, 'y, z', 1] # flow note",
+            "  empty: []",
+            "  section: # section note",
+            "    # inner comment",
+            "    x: 1",
+            "top: 2",
+            "",
+            "# trailing one",
+            "# trailing two",
+            "");
+
+    private static String roundTrip(final String content, final YamlConfiguration target,
+                                    final Map<String, List<String>> comments) throws Exception {
+        ConfigBackend.STREAMING.load(content, target, comments);
+        return ConfigBackend.STREAMING.save(target, HEADER, comments, node -> null);
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        final YamlConfiguration config = new YamlConfiguration();
+        ConfigBackend.STREAMING.load(CONFIG, config, new HashMap<>());
+
+        assertEquals("hello world", config.getString("general.plain"));
+        assertEquals(42, config.get("general.int"));
+        assertEquals(1.5, config.get("general.dbl"));
+        assertEquals(Boolean.TRUE, config.get("general.bool"));
+        assertEquals("yes", config.get("general.str"));
+        assertEquals(Arrays.asList("a", "b: c"), config.getList("general.list"));
+        assertEquals(Arrays.asList("x", "y, z", 1), config.getList("general.flow"));
+        assertTrue(config.getList("general.empty").isEmpty());
+        assertTrue(config.get("general.section") instanceof ConfigurationSection);
+        assertEquals(1, config.get("general.section.x"));
+    }
+
+    @Test
+    public void testNumbers() throws Exception {
+        final YamlConfiguration config = new YamlConfiguration();
+        ConfigBackend.STREAMING.load("a: -3\nb: +7\nc: .5\nd: 1e5\ne: 1e\nf: 9999999999\ng: 1.\n",
+                config, new HashMap<>());
+
+        assertEquals(-3, config.get("a"));
+        assertEquals(7, config.get("b"));
+        assertEquals(0.5, config.get("c"));
+        assertEquals(100000.0, config.get("d"));
+        assertEquals("1e", config.get("e"));
+        assertEquals(9999999999L, config.get("f"));
+        assertEquals(1.0, config.get("g"));
+    }
+
+    @Test
+    public void testRoundTripKeepsLayout() throws Exception {
+        final String saved = roundTrip(CONFIG, new YamlConfiguration(), new HashMap<>());
+
+        assertTrue(saved, saved.contains("# user comment\ngeneral:\n"));
+        assertTrue(saved, saved.contains("  plain: hello world # inline note\n"));
+        assertTrue(saved, saved.contains("  int: 42 # the answer\n"));
+        assertTrue(saved, saved.contains("  flow: [x, 'y, z', 1] # flow note\n"));
+        assertTrue(saved, saved.contains("  list:\n  - a\n  - 'b: c'\n"));
+        assertTrue(saved, saved.contains("  empty: []\n"));
+        assertTrue(saved, saved.contains("  section: # section note\n"));
+        assertTrue(saved, saved.contains("    # inner comment\n    x: 1\n"));
+        assertTrue(saved, saved.endsWith("top: 2\n\n# trailing one\n# trailing two\n"));
+    }
+
+    @Test
+    public void testRoundTripIsStable() throws Exception {
+        final YamlConfiguration first = new YamlConfiguration();
+        final String saved = roundTrip(CONFIG, first, new HashMap<>());
+        final YamlConfiguration second = new YamlConfiguration();
+        final String again = roundTrip(saved, second, new HashMap<>());
+
+        assertEquals(saved, again);
+        for (final String node : first.getKeys(true)) {
+            if (!first.isConfigurationSection(node)) {
+                assertEquals(node, first.get(node), second.get(node));
+            }
+        }
+    }
+}